@@ -0,0 +1,86 @@
+package com.github.t1.rest.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.github.t1.rest.*;
+import com.github.t1.rest.fallback.JsonMessageBodyReader;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXB;
+import java.io.*;
+
+import static com.github.t1.rest.RestContext.*;
+import static com.github.t1.rest.fallback.YamlMessageBodyReader.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.util.concurrent.TimeUnit.*;
+import static javax.ws.rs.core.MediaType.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConverterBenchmark {
+    private static final ObjectMapper YAML = new ObjectMapper(new YAMLFactory());
+
+    public enum Format {
+        json(APPLICATION_JSON_TYPE),
+        yaml(APPLICATION_YAML_TYPE),
+        xml(APPLICATION_XML_TYPE);
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) { this.mediaType = mediaType; }
+    }
+
+    /** the number of items in the payload */
+    @Param({ "1", "100", "10000" })
+    int size;
+
+    @Param
+    Format format;
+
+    private ResponseConverter<Payload> payloadConverter;
+    private ResponseConverter<String> stringConverter;
+    private Headers headers;
+    private byte[] body;
+
+    @Setup
+    public void setup() throws IOException {
+        payloadConverter = REST.converterFor(Payload.class);
+        stringConverter = REST.converterFor(String.class);
+        headers = new Headers().contentType(format.mediaType);
+        body = serialize(Payload.of(size));
+    }
+
+    private byte[] serialize(Payload payload) throws IOException {
+        switch (format) {
+        case json:
+            return JsonMessageBodyReader.MAPPER.writeValueAsBytes(payload);
+        case yaml:
+            return YAML.writeValueAsBytes(payload);
+        case xml:
+        default:
+            StringWriter out = new StringWriter();
+            JAXB.marshal(payload, out);
+            return out.toString().getBytes(UTF_8);
+        }
+    }
+
+    @Benchmark
+    public ResponseConverter<Payload> converterFor() {
+        return REST.converterFor(Payload.class);
+    }
+
+    @Benchmark
+    public Payload convertPayload() {
+        return payloadConverter.convert(new ByteArrayInputStream(body), headers);
+    }
+
+    @Benchmark
+    public String convertString() {
+        return stringConverter.convert(new ByteArrayInputStream(body), headers);
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.t1.rest.benchmarks;
+
+import com.github.t1.rest.Headers;
+import org.openjdk.jmh.annotations.*;
+
+import javax.ws.rs.core.MediaType;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersBenchmark {
+    /** a typical number of headers in a response */
+    @Param({ "5", "30" })
+    int size;
+
+    private Headers headers;
+
+    @Setup
+    public void setup() {
+        headers = build();
+    }
+
+    @Benchmark
+    public Headers build() {
+        Headers result = new Headers().contentType(MediaType.APPLICATION_JSON_TYPE);
+        for (int i = 1; i < size; i++)
+            result = result.header("X-Header-" + i, "value-" + i);
+        return result;
+    }
+
+    @Benchmark
+    public String firstValueOfFirst() {
+        return headers.firstValue("Content-Type");
+    }
+
+    @Benchmark
+    public String firstValueOfLast() {
+        return headers.firstValue("X-Header-" + (size - 1));
+    }
+
+    @Benchmark
+    public String firstValueOfMissing() {
+        return headers.firstValue("X-Missing");
+    }
+
+    @Benchmark
+    public List<String> values() {
+        return headers.values("X-Header-1");
+    }
+
+    @Benchmark
+    public MediaType contentType() {
+        return headers.contentType();
+    }
+
+    @Benchmark
+    public int iterate() {
+        int count = 0;
+        for (Headers.Header header : headers)
+            count += header.name().length();
+        return count;
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.t1.rest.benchmarks;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.util.*;
+
+/** A body with a configurable number of items; public fields, so it works for Jackson and JAXB alike. */
+@XmlRootElement
+public class Payload {
+    public static class Item {
+        public String name;
+        public int count;
+    }
+
+    public static Payload of(int size) {
+        Payload payload = new Payload();
+        for (int i = 0; i < size; i++) {
+            Item item = new Item();
+            item.name = "item-" + i;
+            item.count = i;
+            payload.items.add(item);
+        }
+        return payload;
+    }
+
+    public List<Item> items = new ArrayList<>();
+}
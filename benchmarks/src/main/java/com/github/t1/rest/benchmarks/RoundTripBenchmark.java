@@ -0,0 +1,59 @@
+package com.github.t1.rest.benchmarks;
+
+import com.github.t1.rest.*;
+import com.github.t1.rest.fallback.JsonMessageBodyReader;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+
+import static com.github.t1.rest.RestContext.*;
+import static java.util.concurrent.TimeUnit.*;
+
+/** Full GET round-trips against an in-process stub server, i.e. including the http client and the loopback */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoundTripBenchmark {
+    /** the number of items in the payload */
+    @Param({ "1", "100", "10000" })
+    int size;
+
+    private HttpServer server;
+    private RestResource resource;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("sun.net.httpserver.nodelay", "true"); // otherwise we'd measure delayed ACKs
+        byte[] body = JsonMessageBodyReader.MAPPER.writeValueAsBytes(Payload.of(size));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/payload", exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        resource = REST.createResource("http://127.0.0.1:" + server.getAddress().getPort() + "/payload");
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public Payload get() {
+        return resource.GET(Payload.class);
+    }
+
+    @Benchmark
+    public String getString() {
+        return resource.GET();
+    }
+}
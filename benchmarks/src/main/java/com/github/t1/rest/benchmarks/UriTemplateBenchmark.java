@@ -0,0 +1,58 @@
+package com.github.t1.rest.benchmarks;
+
+import com.github.t1.rest.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.*;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UriTemplateBenchmark {
+    private static final String TEMPLATE = "https://api.example.org/orders/{id}/items/{item}?expand={expand}";
+
+    private final UriTemplate template = UriTemplate.fromString(TEMPLATE);
+    private final CompiledUriTemplate compiled = template.compile();
+    private final UriTemplate resolved = template.with("id", 1234).with("item", 5678).with("expand", "all");
+
+    @Benchmark
+    public UriTemplate fromString() {
+        return UriTemplate.fromString(TEMPLATE);
+    }
+
+    @Benchmark
+    public UriTemplate with() {
+        return template.with("id", 1234).with("item", 5678).with("expand", "all");
+    }
+
+    @Benchmark
+    public URI withToUri() {
+        return template.with("id", 1234).with("item", 5678).with("expand", "all").toUri();
+    }
+
+    @Benchmark
+    public URI expand() {
+        return compiled.expand(1234, 5678, "all");
+    }
+
+    @Benchmark
+    public URI toUri() {
+        return resolved.toUri();
+    }
+
+    @Benchmark
+    public List<String> variables() {
+        return template.variables();
+    }
+
+    @Benchmark
+    public int hashCodeOf() {
+        return resolved.hashCode();
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.Headers.Header;
+
+import java.net.URI;
+
+/**
+ * SPI for authentication schemes other than the basic auth of the {@link Credentials} in a {@link CredentialsRegistry},
+ * e.g. the {@link BearerTokenAuthenticator}. {@link RestContext#register(Authenticator) Register} it or produce it
+ * with CDI. Credentials take precedence, and requests that already have an <code>Authorization</code> header are not
+ * touched.
+ */
+public interface Authenticator {
+    /** The <code>Authorization</code> header for a request to that uri, or <code>null</code> if this doesn't apply. */
+    Header authorization(URI uri);
+
+    /**
+     * The server responded with a <code>401 Unauthorized</code> to a request to that uri with that header.
+     *
+     * @return <code>true</code> if the header is from this authenticator and repeating the request with a new
+     * {@link #authorization(URI)} may succeed; the request is repeated only once.
+     */
+    default boolean rejected(URI uri, Header authorization) {
+        return false;
+    }
+}
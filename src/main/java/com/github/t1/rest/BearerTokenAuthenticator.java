@@ -0,0 +1,163 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.Headers.Header;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Locale.*;
+
+/**
+ * Adds <code>Authorization: Bearer</code> headers to the requests to the configured authorities (scheme, host and
+ * port). The tokens are fetched from a {@link TokenProvider}, e.g. the {@link ClientCredentialsTokenProvider}, and
+ * cached per authority. A token that is about to expire is refreshed in the background, while the current token is
+ * still used. Concurrent refreshes for one authority are coalesced into a single token request. When the server
+ * {@link #rejected(URI, Header) rejects} a token, it's dropped, so the request can be repeated with a fresh one.
+ */
+@Slf4j
+@ThreadSafe
+public class BearerTokenAuthenticator implements Authenticator {
+    /** Fetches a new token for the authority, e.g. <code>https://api.example.org</code>. */
+    @FunctionalInterface
+    public interface TokenProvider {
+        Token fetch(URI authority);
+    }
+
+    @Value
+    public static class Token {
+        String value;
+        /** {@link Instant#MAX} if it doesn't expire by itself */
+        @NonNull Instant expiresAt;
+        @Getter(AccessLevel.NONE)
+        @EqualsAndHashCode.Exclude
+        Header header;
+
+        public Token(String value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.header = new Header("Authorization", "Bearer " + value);
+        }
+
+        @Override
+        public String toString() {
+            return "token(expires at " + expiresAt + ")"; // don't expose
+        }
+    }
+
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofSeconds(30);
+
+    private final TokenProvider provider;
+    private final Duration refreshAhead;
+    private final Executor executor;
+    private final Map<String, Slot> slots = new HashMap<>();
+
+    /** Authenticate requests to the authorities of these uris; any path, etc. is ignored */
+    public BearerTokenAuthenticator(TokenProvider provider, URI... uris) {
+        this(provider, DEFAULT_REFRESH_AHEAD, ForkJoinPool.commonPool(), uris);
+    }
+
+    /**
+     * @param refreshAhead how long before a token expires, it should be refreshed in the background
+     * @param executor     runs the token requests
+     */
+    public BearerTokenAuthenticator(@NonNull TokenProvider provider, @NonNull Duration refreshAhead,
+            @NonNull Executor executor, URI... uris) {
+        this.provider = provider;
+        this.refreshAhead = refreshAhead;
+        this.executor = executor;
+        for (URI uri : uris) {
+            URI authority = URI.create(uri.getScheme() + "://" + uri.getRawAuthority());
+            slots.put(key(authority), new Slot(authority));
+        }
+    }
+
+    private static String key(URI uri) {
+        return (uri.getScheme() + "://" + uri.getRawAuthority()).toLowerCase(ROOT);
+    }
+
+    @Override
+    public Header authorization(URI uri) {
+        Slot slot = slots.get(key(uri));
+        return (slot == null) ? null : slot.token().header;
+    }
+
+    @Override
+    public boolean rejected(URI uri, Header authorization) {
+        Slot slot = slots.get(key(uri));
+        return slot != null && slot.rejected(authorization);
+    }
+
+    /** the token of one authority */
+    @RequiredArgsConstructor
+    private class Slot {
+        private final URI authority;
+        private volatile Token token;
+        private final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+
+        private Token token() {
+            Token current = token;
+            Instant now = Instant.now();
+            if (current == null || !now.isBefore(current.expiresAt()))
+                return await(refresh());
+            if (!now.isBefore(current.expiresAt().minus(refreshAhead)))
+                refresh(); // and use the current token in the meantime
+            return current;
+        }
+
+        private CompletableFuture<Token> refresh() {
+            while (true) {
+                CompletableFuture<Token> running = refreshing.get();
+                if (running != null)
+                    return running;
+                CompletableFuture<Token> future = new CompletableFuture<>();
+                if (refreshing.compareAndSet(null, future)) {
+                    executor.execute(() -> fetch(future));
+                    return future;
+                }
+            }
+        }
+
+        private void fetch(CompletableFuture<Token> future) {
+            try {
+                log.debug("fetch token for {}", authority);
+                Token fetched = provider.fetch(authority);
+                if (fetched == null)
+                    throw new IllegalStateException("no token for " + authority);
+                token = fetched;
+                future.complete(fetched);
+            } catch (RuntimeException e) {
+                log.debug("failed to fetch token for {}", authority, e);
+                future.completeExceptionally(e);
+            } finally {
+                refreshing.compareAndSet(future, null);
+            }
+        }
+
+        private Token await(CompletableFuture<Token> future) {
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+
+        private boolean rejected(Header authorization) {
+            if (!authorization.value().startsWith("Bearer "))
+                return false;
+            Token current = token;
+            if (current != null && current.header.equals(authorization)) {
+                log.debug("token rejected by {}", authority);
+                token = null;
+            } // else it's already been replaced
+            return true;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.RestClientRecorder.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.ws.rs.core.Response.Status;
+import java.io.*;
+import java.net.URI;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static java.nio.channels.FileChannel.MapMode.*;
+import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * The {@link RestClientRecorder.Format#binary binary} format of the recordings: a header and length prefixed records.
+ * Every record starts with the fields of the {@link RecordingKey} and the {@link Timing}, so the memory mapped file can
+ * be indexed by reading only those; the rest of a recording is decoded only when it's played back.
+ * <p>
+ * Strings are an int length (-1 for <code>null</code>) and the UTF-8 bytes; lists are an int count and the elements.
+ */
+@Slf4j
+class BinaryRecordingFile {
+    private static final int MAGIC = 0x52524543; // "RREC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    /** what's read from the file without decoding the complete recordings */
+    @FunctionalInterface
+    interface Index {
+        void put(RecordingKey key, Timing timing, Supplier<Recording> source);
+    }
+
+    /** Writes or appends records to a file, writing the header first, if the file is new */
+    static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+        private final DataOutputStream recordOut = new DataOutputStream(record);
+
+        Writer(Path file, boolean append) throws IOException {
+            boolean empty = !append || !Files.exists(file) || Files.size(file) == 0;
+            this.out = new DataOutputStream(new BufferedOutputStream(append
+                    ? Files.newOutputStream(file, CREATE, APPEND)
+                    : Files.newOutputStream(file)));
+            if (empty) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+        }
+
+        void write(Recording recording) throws IOException {
+            record.reset();
+            RecordingKey key = recording.key();
+            writeString(recordOut, key.method());
+            writeString(recordOut, key.uri().toString());
+            recordOut.writeInt(key.headers().size());
+            for (String header : key.headers())
+                writeString(recordOut, header);
+            writeString(recordOut, key.body());
+            writeTiming(recordOut, recording.timing());
+
+            writeHeaders(recordOut, recording.requestHeaders());
+            recordOut.writeInt((recording.responseStatus() == null) ? 0 : recording.responseStatus().getStatusCode());
+            writeHeaders(recordOut, recording.responseHeaders());
+            writeString(recordOut, recording.responseBody());
+
+            out.writeInt(record.size());
+            record.writeTo(out);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static void writeTiming(DataOutput out, Timing timing) throws IOException {
+        out.writeBoolean(timing != null);
+        if (timing != null) {
+            out.writeLong(timing.timeToFirstByte());
+            out.writeLong(timing.duration());
+            out.writeLong(timing.bodySize());
+        }
+    }
+
+    private static void writeHeaders(DataOutput out, Headers headers) throws IOException {
+        if (headers == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(headers.size());
+        for (Headers.Header header : headers) {
+            writeString(out, header.name());
+            writeString(out, header.value());
+        }
+    }
+
+    private static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Map the file and put the key and timing of every record into the index, together with a supplier that decodes the
+     * complete recording. The mapping stays valid, even when the file is replaced or deleted later.
+     *
+     * @return the number of records
+     */
+    static int read(Path file, Index index) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalStateException("recordings file too big to be mapped: " + file);
+            mapped = channel.map(READ_ONLY, 0, channel.size());
+        }
+        if (mapped.limit() < HEADER_SIZE || mapped.getInt(0) != MAGIC)
+            throw new IllegalStateException("not a binary recordings file: " + file);
+        if (mapped.getInt(4) != VERSION)
+            throw new IllegalStateException("unsupported version " + mapped.getInt(4) + " of recordings file " + file);
+
+        int count = 0;
+        int offset = HEADER_SIZE;
+        while (offset < mapped.limit()) {
+            int end = (offset + 4 <= mapped.limit()) ? offset + 4 + mapped.getInt(offset) : -1;
+            if (end < offset || end > mapped.limit()) {
+                log.warn("ignore truncated record at {} in {}", offset, file);
+                break;
+            }
+            ByteBuffer record = slice(mapped, offset + 4, end);
+            index.put(readKey(record), readTiming(record), () -> decode(slice(record, 0, record.limit())));
+            count++;
+            offset = end;
+        }
+        return count;
+    }
+
+    /** an independent view, so concurrent playbacks don't share a position */
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int to) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(to).position(from);
+        return view.slice();
+    }
+
+    private static RecordingKey readKey(ByteBuffer in) {
+        String method = readString(in);
+        URI uri = URI.create(readString(in));
+        int size = in.getInt();
+        List<String> headers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            headers.add(readString(in));
+        String body = readString(in);
+        return new RecordingKey(method, uri, headers, body);
+    }
+
+    private static Timing readTiming(ByteBuffer in) {
+        return (in.get() == 0) ? null : new Timing(in.getLong(), in.getLong(), in.getLong());
+    }
+
+    private static Recording decode(ByteBuffer in) {
+        RecordingKey key = readKey(in);
+        Recording recording = new Recording().method(key.method()).uri(key.uri()).requestBody(key.body());
+        recording.timing(readTiming(in));
+        recording.requestHeaders(readHeaders(in));
+        int status = in.getInt();
+        recording.responseStatus((status == 0) ? null : Status.fromStatusCode(status));
+        recording.responseHeaders(readHeaders(in));
+        recording.responseBody(readString(in));
+        return recording;
+    }
+
+    private static Headers readHeaders(ByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0)
+            return null;
+        Headers headers = new Headers();
+        for (int i = 0; i < size; i++)
+            headers = headers.header(readString(in), readString(in));
+        return headers;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
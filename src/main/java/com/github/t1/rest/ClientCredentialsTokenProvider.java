@@ -0,0 +1,53 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.BearerTokenAuthenticator.*;
+import lombok.*;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Fetches tokens for the {@link BearerTokenAuthenticator} with the OAuth 2.0 client credentials grant (RFC 6749,
+ * section 4.4), authenticating the client with basic auth.
+ */
+@Immutable
+@Value
+@AllArgsConstructor
+public class ClientCredentialsTokenProvider implements TokenProvider {
+    @NonNull RestContext context;
+    @NonNull URI tokenUri;
+    @NonNull Credentials client;
+    /** <code>null</code> for the default scope of the client */
+    String scope;
+
+    public ClientCredentialsTokenProvider(RestContext context, URI tokenUri, Credentials client) {
+        this(context, tokenUri, client, null);
+    }
+
+    public ClientCredentialsTokenProvider scope(String scope) {
+        return new ClientCredentialsTokenProvider(context, tokenUri, client, scope);
+    }
+
+    @Override
+    public Token fetch(URI authority) {
+        FormBuilder form = FormBuilder.form().field("grant_type", "client_credentials");
+        if (scope != null)
+            form.field("scope", scope);
+        Map<?, ?> response = context.createResource(tokenUri).basicAuth(client).accept(Map.class)
+                .body(form.build()).POST();
+        Object token = response.get("access_token");
+        if (token == null)
+            throw new IllegalStateException("no access_token in response from " + tokenUri);
+        Object expiresIn = response.get("expires_in");
+        Instant expiresAt = (expiresIn == null) ? Instant.MAX
+                : Instant.now().plusSeconds(Long.parseLong(expiresIn.toString()));
+        return new Token(token.toString(), expiresAt);
+    }
+
+    @Override
+    public String toString() {
+        return "client-credentials(" + tokenUri + ((scope == null) ? "" : " " + scope) + ")"; // don't expose client
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.Headers.Header;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.*;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+/** The first authenticator with an authorization wins */
+@Immutable
+public class CombinedAuthenticator implements Authenticator {
+    public static Authenticator combine(Authenticator... authenticators) {
+        return combine(asList(authenticators));
+    }
+
+    public static Authenticator combine(Iterable<Authenticator> authenticators) {
+        return new CombinedAuthenticator(authenticators);
+    }
+
+    private final List<Authenticator> authenticators;
+
+    private CombinedAuthenticator(Iterable<Authenticator> authenticators) {
+        List<Authenticator> list = new ArrayList<>();
+        for (Authenticator authenticator : authenticators)
+            list.add(authenticator);
+        this.authenticators = unmodifiableList(list);
+    }
+
+    boolean isEmpty() {
+        return authenticators.isEmpty();
+    }
+
+    @Override
+    public Header authorization(URI uri) {
+        for (Authenticator authenticator : authenticators) {
+            Header authorization = authenticator.authorization(uri);
+            if (authorization != null)
+                return authorization;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean rejected(URI uri, Header authorization) {
+        for (Authenticator authenticator : authenticators)
+            if (authenticator.rejected(uri, authorization))
+                return true;
+        return false;
+    }
+}
@@ -33,6 +33,18 @@ public class CombinedCredentialsRegistry extends CredentialsRegistry {
         return null;
     }
 
+    @Override
+    public Credentials lookup(URI uri) {
+        switch (registries.size()) {
+            case 0:
+                return null;
+            case 1:
+                return registries.get(0).lookup(uri);
+            default:
+                return super.lookup(uri);
+        }
+    }
+
     @Override
     public List<URI> uris() {
         List<URI> list = new ArrayList<>();
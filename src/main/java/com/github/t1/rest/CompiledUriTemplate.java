@@ -0,0 +1,118 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.UriTemplate.*;
+import lombok.*;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.*;
+import java.util.function.IntFunction;
+
+import static com.github.t1.rest.PathVariableExpression.*;
+import static java.util.Collections.*;
+
+/**
+ * A {@link UriTemplate} split once into literal and variable segments, so it can be expanded repeatedly in one pass,
+ * e.g. <code>UriTemplate.fromString("http://example.org/orders/{id}/items/{item}").compile().expand(123, 4)</code>.
+ * The variables are resolved just like {@link UriTemplate#with(String, Object)} does.
+ */
+@Immutable
+public class CompiledUriTemplate {
+    @Value
+    private static class Segment {
+        String literal;
+        /** the index in the {@link #variables}, or <code>-1</code> for a literal */
+        int variable;
+        /** path elements must not contain slashes, unless it's a <code>{*star}</code> variable */
+        boolean noSlashes;
+    }
+
+    @Getter
+    private final UriTemplate template;
+    /** the distinct names of the variables in the order of their first occurrence */
+    @Getter
+    private final List<String> variables;
+    private final Segment[] segments;
+    private final int literalLength;
+
+    CompiledUriTemplate(@NonNull UriTemplate template) {
+        this.template = template;
+        List<String> variables = new ArrayList<>();
+        List<Segment> segments = new ArrayList<>();
+        int literalLength = 0;
+        for (UriTemplate part : parts(template)) {
+            String string = part.toString().substring((part.previous == null) ? 0 : part.previous.toString().length());
+            boolean isPath = part instanceof UriPath;
+            int start = 0;
+            while (start < string.length()) {
+                int open = string.indexOf('{', start);
+                int close = (open < 0) ? -1 : string.indexOf('}', open + 1);
+                if (close < 0) {
+                    open = close = string.length();
+                }
+                if (open > start) {
+                    segments.add(new Segment(string.substring(start, open), -1, false));
+                    literalLength += open - start;
+                }
+                if (close < string.length()) {
+                    String name = string.substring(open + 1, close);
+                    boolean star = isPath && name.startsWith("*");
+                    if (star)
+                        name = name.substring(1);
+                    int index = variables.indexOf(name);
+                    if (index < 0) {
+                        index = variables.size();
+                        variables.add(name);
+                    }
+                    segments.add(new Segment(null, index, isPath && !star));
+                }
+                start = close + 1;
+            }
+        }
+        this.variables = unmodifiableList(variables);
+        this.segments = segments.toArray(new Segment[0]);
+        this.literalLength = literalLength;
+    }
+
+    private static List<UriTemplate> parts(UriTemplate template) {
+        LinkedList<UriTemplate> parts = new LinkedList<>();
+        for (UriTemplate part = template; part != null; part = part.previous)
+            parts.addFirst(part);
+        return parts;
+    }
+
+    /** Expand with the values for the {@link #variables() variables} by name. */
+    public URI expand(@NonNull Map<String, ?> values) {
+        return URI.create(render(index -> values.get(variables.get(index))));
+    }
+
+    /** Expand with the values for the {@link #variables() variables} in the order of their first occurrence. */
+    public URI expand(@NonNull Object... values) {
+        if (values.length != variables.size())
+            throw new IllegalArgumentException(
+                    "expected " + variables.size() + " values for " + variables + " but got " + values.length);
+        return URI.create(render(index -> values[index]));
+    }
+
+    private String render(IntFunction<Object> values) {
+        StringBuilder out = new StringBuilder(literalLength + 16 * variables.size());
+        for (Segment segment : segments) {
+            if (segment.variable < 0) {
+                out.append(segment.literal);
+            } else {
+                Object value = values.apply(segment.variable);
+                if (value == null)
+                    throw new IllegalArgumentException(
+                            "no value for variable '" + variables.get(segment.variable) + "' in " + template);
+                String string = value.toString();
+                out.append(segment.noSlashes ? checkNoSlashes(string) : string);
+            }
+        }
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return template.toString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.github.t1.rest;
+
+import lombok.*;
+
+import javax.annotation.concurrent.Immutable;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * Immutable, fluent configuration of the http connections pooled by a {@link RestCallFactory}. Pass a
+ * {@link RestCallFactory#RestCallFactory(ConnectionPoolConfig) factory} with this config to
+ * {@link RestContext#restCallFactory(RestCallFactory)}, to give that context a pool of its own.
+ * <p>
+ * All times are stored in milliseconds; values <code>&lt;= 0</code> disable idle eviction and time-to-live resp.
+ * <p>
+ * The non-blocking pool for async calls doesn't validate connections after inactivity: the I/O reactor notices when
+ * the server closes a connection, anyway.
+ */
+@Immutable
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class ConnectionPoolConfig {
+    /**
+     * Enough connections for a service calling a few downstreams concurrently, and waiting for a free connection as
+     * long as the default socket timeout. The defaults of the Apache http-client (2 per route, 20 in total) and a wait
+     * of 1 ms let concurrent calls fail instead of queueing.
+     */
+    public static final ConnectionPoolConfig DEFAULT =
+            new ConnectionPoolConfig(200, 20, emptyMap(), 5_000, -1, -1, 2_000);
+
+    int maxTotal;
+    int maxPerRoute;
+    /** the maximum number of connections for a scheme and authority, overriding the {@link #maxPerRoute} */
+    Map<URI, Integer> maxPerRouteOverrides;
+    /** how long to wait for a free connection from the pool */
+    int connectionRequestTimeout;
+    long maxIdleTime;
+    long timeToLive;
+    /** how long a connection can be inactive in the pool, before it's checked for staleness before being reused */
+    int validateAfterInactivity;
+
+    public ConnectionPoolConfig maxTotal(int maxTotal) {
+        return new ConnectionPoolConfig(checkPositive("max total", maxTotal), maxPerRoute, maxPerRouteOverrides,
+                connectionRequestTimeout, maxIdleTime, timeToLive, validateAfterInactivity);
+    }
+
+    public ConnectionPoolConfig maxPerRoute(int maxPerRoute) {
+        return new ConnectionPoolConfig(maxTotal, checkPositive("max per route", maxPerRoute), maxPerRouteOverrides,
+                connectionRequestTimeout, maxIdleTime, timeToLive, validateAfterInactivity);
+    }
+
+    /** Override the {@link #maxPerRoute} for the scheme and authority of that uri; any path etc. is ignored. */
+    public ConnectionPoolConfig maxPerRoute(@NonNull URI uri, int max) {
+        if (uri.getScheme() == null || uri.getHost() == null)
+            throw new IllegalArgumentException("a route requires a scheme and a host: " + uri);
+        Map<URI, Integer> overrides = new LinkedHashMap<>(maxPerRouteOverrides);
+        overrides.put(URI.create(uri.getScheme() + "://" + uri.getRawAuthority()), checkPositive("max per route", max));
+        return new ConnectionPoolConfig(maxTotal, maxPerRoute, unmodifiableMap(overrides),
+                connectionRequestTimeout, maxIdleTime, timeToLive, validateAfterInactivity);
+    }
+
+    public ConnectionPoolConfig connectionRequestTimeout(long timeout, TimeUnit unit) {
+        return new ConnectionPoolConfig(maxTotal, maxPerRoute, maxPerRouteOverrides,
+                checkedMillis("connection request timeout", timeout, unit), maxIdleTime, timeToLive,
+                validateAfterInactivity);
+    }
+
+    /** Close connections that have been idle in the pool for longer than this. */
+    public ConnectionPoolConfig maxIdleTime(long maxIdleTime, TimeUnit unit) {
+        return new ConnectionPoolConfig(maxTotal, maxPerRoute, maxPerRouteOverrides,
+                connectionRequestTimeout, unit.toMillis(maxIdleTime), timeToLive, validateAfterInactivity);
+    }
+
+    /** Don't reuse connections that have been opened longer ago than this. */
+    public ConnectionPoolConfig timeToLive(long timeToLive, TimeUnit unit) {
+        return new ConnectionPoolConfig(maxTotal, maxPerRoute, maxPerRouteOverrides,
+                connectionRequestTimeout, maxIdleTime, unit.toMillis(timeToLive), validateAfterInactivity);
+    }
+
+    public ConnectionPoolConfig validateAfterInactivity(long inactivity, TimeUnit unit) {
+        return new ConnectionPoolConfig(maxTotal, maxPerRoute, maxPerRouteOverrides,
+                connectionRequestTimeout, maxIdleTime, timeToLive,
+                checkedMillis("validate after inactivity", inactivity, unit));
+    }
+
+    private static int checkedMillis(String name, long value, TimeUnit unit) {
+        long millis = unit.toMillis(value);
+        if (value < 0 || millis > Integer.MAX_VALUE)
+            throw new IllegalArgumentException(
+                    name + " must be between 0 and " + Integer.MAX_VALUE + " ms but was " + value + " " + unit);
+        return (int) millis;
+    }
+
+    private static int checkPositive(String name, int value) {
+        if (value <= 0)
+            throw new IllegalArgumentException(name + " must be positive but was " + value);
+        return value;
+    }
+}
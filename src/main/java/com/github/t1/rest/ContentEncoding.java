@@ -0,0 +1,59 @@
+package com.github.t1.rest;
+
+import org.apache.http.client.entity.DeflateInputStream;
+
+import java.io.*;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Locale.*;
+
+/**
+ * The <code>Content-Encoding</code>s that a {@link RestContext} {@link RestContext#acceptEncodings(ContentEncoding...)
+ * accepts}: the responses are decoded while they are read, so the compressed body is never buffered as a whole.
+ */
+public enum ContentEncoding {
+    gzip {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+    /** zlib, but some servers send raw deflate data, so we accept that, too */
+    deflate {
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new DeflateInputStream(in);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    /** <code>null</code> for <code>identity</code> and for encodings we don't know */
+    public static ContentEncoding of(String token) {
+        if (token == null)
+            return null;
+        switch (token.trim().toLowerCase(ROOT)) {
+            case "gzip":
+            case "x-gzip":
+                return gzip;
+            case "deflate":
+                return deflate;
+            default:
+                return null;
+        }
+    }
+
+    /** the value of the <code>Accept-Encoding</code> header */
+    public static String accept(List<ContentEncoding> encodings) {
+        StringBuilder out = new StringBuilder();
+        for (ContentEncoding encoding : encodings) {
+            if (out.length() > 0)
+                out.append(", ");
+            out.append(encoding.name());
+        }
+        return out.toString();
+    }
+}
@@ -2,13 +2,24 @@ package com.github.t1.rest;
 
 import javax.annotation.concurrent.Immutable;
 
-import lombok.Value;
+import com.github.t1.rest.Headers.Header;
+
+import lombok.*;
 
 @Immutable
 @Value
 public class Credentials {
     String userName;
     String password;
+    /** encoded only once, so it can be added to every request */
+    @EqualsAndHashCode.Exclude
+    Header basicAuthHeader;
+
+    public Credentials(String userName, String password) {
+        this.userName = userName;
+        this.password = password;
+        this.basicAuthHeader = Headers.basicAuthHeader(userName, password);
+    }
 
     @Override
     public String toString() {
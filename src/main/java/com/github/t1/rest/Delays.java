@@ -0,0 +1,52 @@
+package com.github.t1.rest;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * Waiting without a thread per wait: one daemon thread runs everything that's due later, e.g. the completion of
+ * delayed async calls of the {@link RestClientMocker} and the {@link RestClientRecorder}. The tasks must be short.
+ */
+class Delays {
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "rest-client-delays");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Delays() {}
+
+    /** Complete with the result (or the exception) of the supplier, after that many microseconds */
+    static <T> CompletableFuture<T> completeAfter(long micros, Supplier<T> result) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable complete = () -> {
+            try {
+                future.complete(result.get());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        if (micros > 0)
+            SCHEDULER.schedule(complete, micros, MICROSECONDS);
+        else
+            complete.run();
+        return future;
+    }
+
+    /** Run the task repeatedly, until the returned future is cancelled */
+    static ScheduledFuture<?> every(long period, TimeUnit unit, Runnable task) {
+        return SCHEDULER.scheduleWithFixedDelay(task, period, period, unit);
+    }
+
+    /** Block the calling thread for that many microseconds; an interrupt ends the wait early and is kept */
+    static void sleep(long micros) {
+        if (micros > 0)
+            try {
+                MICROSECONDS.sleep(micros);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+    }
+}
@@ -1,19 +1,61 @@
 package com.github.t1.rest;
 
-import javax.annotation.concurrent.Immutable;
+import lombok.SneakyThrows;
+
 import javax.ws.rs.core.Response.StatusType;
 import java.io.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
-@Immutable
-public class EntityResponse<T> extends RestResponse {
+/**
+ * A response with a body that is either buffered, or streaming directly from the connection. A streaming body can be
+ * read only once, and the connection is released after the conversion, unless the body itself is {@link Closeable}
+ * (e.g. an {@link InputStream}): then it's the callers responsibility to close it. If you don't read a streaming body
+ * at all, you should {@link #close()} the response.
+ */
+public class EntityResponse<T> extends RestResponse implements Closeable {
     private final ResponseConverter<T> converter;
     private final byte[] body;
+    /** <code>null</code> if the body is buffered; empty, when the streaming body has already been read */
+    private final AtomicReference<InputStream> stream;
+    private final LongSupplier compressedSize;
+    private final LongSupplier decompressedSize;
+    /** when the response arrived, before its body was read; 0 if it's not known, e.g. when mocked */
+    private final long firstByteNanos;
 
     public EntityResponse(RestContext context, StatusType status, Headers headers, ResponseConverter<T> converter,
             byte[] body) {
+        this(context, status, headers, converter, body, (body == null) ? 0 : body.length, 0);
+    }
+
+    /** a buffered response that has been decoded from <code>compressedSize</code> bytes */
+    EntityResponse(RestContext context, StatusType status, Headers headers, ResponseConverter<T> converter,
+            byte[] body, long compressedSize, long firstByteNanos) {
         super(context, status, headers);
+        this.firstByteNanos = firstByteNanos;
         this.body = body;
         this.converter = converter;
+        this.stream = null;
+        this.compressedSize = () -> compressedSize;
+        this.decompressedSize = () -> (body == null) ? 0 : body.length;
+    }
+
+    /** a streaming response; closing the stream must release the connection */
+    public EntityResponse(RestContext context, StatusType status, Headers headers, ResponseConverter<T> converter,
+            InputStream stream) {
+        this(context, status, headers, converter, new CountingInputStream(stream), null, 0);
+    }
+
+    /** a streaming response that is decoded from the <code>compressed</code> stream while it's read */
+    EntityResponse(RestContext context, StatusType status, Headers headers, ResponseConverter<T> converter,
+            CountingInputStream stream, CountingInputStream compressed, long firstByteNanos) {
+        super(context, status, headers);
+        this.firstByteNanos = firstByteNanos;
+        this.body = null;
+        this.converter = converter;
+        this.stream = new AtomicReference<>(stream);
+        this.compressedSize = (compressed == null) ? stream::count : compressed::count;
+        this.decompressedSize = stream::count;
     }
 
     @Override
@@ -26,14 +68,54 @@ public class EntityResponse<T> extends RestResponse {
         return new UnexpectedStatusException(status(), headers(), getBody(String.class), expectedTypes);
     }
 
+    public boolean isStreaming() { return stream != null; }
+
+    /**
+     * The number of body bytes received, i.e. before decoding the <code>Content-Encoding</code>. For a streaming body,
+     * it's only the bytes read so far.
+     */
+    public long compressedSize() { return compressedSize.getAsLong(); }
+
+    /** The number of body bytes after decoding; for a streaming body, it's only the bytes read so far. */
+    public long decompressedSize() { return decompressedSize.getAsLong(); }
+
+    /** The {@link System#nanoTime()} when the response arrived, before its body was read; 0 if it's not known. */
+    long firstByteNanos() { return firstByteNanos; }
+
     public T getBody() {
-        return (body == null) ? null : converter.convert(inputStream(), headers());
+        return read(converter);
     }
 
     public <U> U getBody(Class<U> type) {
-        ResponseConverter<U> otherConverter = context().converterFor(type);
-        return (body == null) ? null : otherConverter.convert(inputStream(), headers());
+        return read(context().converterFor(type));
+    }
+
+    private <U> U read(ResponseConverter<U> converter) {
+        if (stream == null)
+            return (body == null) ? null : converter.convert(new ByteArrayInputStream(body), headers());
+        InputStream in = stream.getAndSet(null);
+        if (in == null)
+            throw new IllegalStateException("the streaming body has already been read");
+        U result = null;
+        try {
+            result = converter.convert(in, headers());
+            return result;
+        } finally {
+            if (!(result instanceof Closeable))
+                close(in);
+        }
+    }
+
+    /** Release the connection of a streaming body that has not been read; no-op for a buffered body. */
+    @Override
+    public void close() {
+        if (stream != null) {
+            InputStream in = stream.getAndSet(null);
+            if (in != null)
+                close(in);
+        }
     }
 
-    private InputStream inputStream() { return new ByteArrayInputStream(body); }
+    @SneakyThrows(IOException.class)
+    private void close(InputStream in) { in.close(); }
 }
@@ -1,16 +1,19 @@
 package com.github.t1.rest;
 
 import lombok.*;
-import org.apache.http.HttpEntity;
+import org.apache.http.*;
 import org.apache.http.client.methods.*;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 
 import javax.annotation.concurrent.Immutable;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response.StatusType;
-import java.io.IOException;
+import java.io.*;
 import java.lang.annotation.Annotation;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static com.github.t1.rest.fallback.ByteArrayMessageBodyReader.*;
 
@@ -21,7 +24,13 @@ class EntityRestCall<T> extends RestCall {
 
     public <M extends Annotation> EntityRestCall(RestContext context, Class<M> method, URI uri, Headers requestHeaders,
             CloseableHttpClient apacheClient, ResponseConverter<T> converter) {
-        super(context, method, uri, requestHeaders, apacheClient, apacheRequest(method, uri));
+        this(context, method, uri, requestHeaders, apacheClient, null, converter);
+    }
+
+    public <M extends Annotation> EntityRestCall(RestContext context, Class<M> method, URI uri, Headers requestHeaders,
+            CloseableHttpClient apacheClient, Supplier<CloseableHttpAsyncClient> apacheAsyncClient,
+            ResponseConverter<T> converter) {
+        super(context, method, uri, requestHeaders, apacheClient, apacheAsyncClient, apacheRequest(method, uri));
         this.converter = converter;
     }
 
@@ -32,6 +41,10 @@ class EntityRestCall<T> extends RestCall {
             return new HttpGet(uri);
         if (method == POST.class)
             return new HttpPost(uri);
+        if (method == PUT.class)
+            return new HttpPut(uri);
+        if (method == DELETE.class)
+            return new HttpDelete(uri);
         throw new UnsupportedOperationException("no handling defined for http method " + method.getName());
     }
 
@@ -41,13 +54,60 @@ class EntityRestCall<T> extends RestCall {
         return (EntityResponse<T>) super.execute();
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<EntityResponse<T>> executeAsync() {
+        return (CompletableFuture<EntityResponse<T>>) super.executeAsync();
+    }
+
+    @Override
+    protected boolean streaming() {
+        return converter.streaming();
+    }
+
+    /**
+     * Async responses are already buffered by the client, so they are never streaming. A body with a known
+     * {@link ContentEncoding} is decoded while it's read, and the headers that only apply to the encoded body are
+     * dropped.
+     */
     @Override
     @SneakyThrows(IOException.class)
-    protected EntityResponse<T> convert(CloseableHttpResponse apacheResponse) {
+    protected EntityResponse<T> convert(HttpResponse apacheResponse, long firstByteNanos) {
         StatusType status = status(apacheResponse);
-        Headers responseHeaders = convert(apacheResponse.getAllHeaders());
         HttpEntity entity = apacheResponse.getEntity();
-        byte[] body = (entity == null) ? null : readAll(entity.getContent());
-        return new EntityResponse<>(context(), status, responseHeaders, converter, body);
+        ContentEncoding encoding = (entity == null || entity.getContentEncoding() == null) ? null
+                : ContentEncoding.of(entity.getContentEncoding().getValue());
+        Headers responseHeaders = convert(apacheResponse.getAllHeaders(), encoding != null);
+        if (entity == null)
+            return new EntityResponse<>(context(), status, responseHeaders, converter, (byte[]) null, 0,
+                    firstByteNanos);
+        CountingInputStream compressed = new CountingInputStream(entity.getContent());
+        InputStream content = (encoding == null) ? compressed : encoding.decode(compressed);
+        if (streaming() && apacheResponse instanceof Closeable)
+            return new EntityResponse<>(context(), status, responseHeaders, converter,
+                    new CountingInputStream(new ResponseStream(content, (Closeable) apacheResponse)), compressed,
+                    firstByteNanos);
+        byte[] body = readAll(content);
+        return new EntityResponse<>(context(), status, responseHeaders, converter, body, compressed.count(),
+                firstByteNanos);
+    }
+
+    /** Closes the response (and thereby releases the connection), when the stream is closed */
+    private static class ResponseStream extends FilterInputStream {
+        private final Closeable response;
+
+        private ResponseStream(InputStream in, Closeable response) {
+            super(in);
+            this.response = response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                response.close();
+            }
+        }
     }
 }
@@ -1,9 +1,30 @@
 package com.github.t1.rest;
 
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.ArrayList;
+
+/**
+ * Builds the fields of a form to be sent as <code>application/x-www-form-urlencoded</code>
+ * {@link RestRequest#body(Object) body}, e.g. <code>form().field("grant_type", "client_credentials").build()</code>.
+ * It's a plain {@link MultivaluedMap}, so it works with JAX-RS 1.1.
+ */
 public class FormBuilder {
     public static FormBuilder form() {
         return new FormBuilder();
     }
 
-    public void build() {}
+    private final MultivaluedMap<String, String> fields = new LinkedMultivaluedMap<>();
+
+    /** Add a field; fields with the same name are all sent */
+    public FormBuilder field(String name, Object value) {
+        fields.add(name, String.valueOf(value));
+        return this;
+    }
+
+    /** A copy of the fields added so far, in the order they were added */
+    public MultivaluedMap<String, String> build() {
+        MultivaluedMap<String, String> copy = new LinkedMultivaluedMap<>();
+        fields.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+        return copy;
+    }
 }
@@ -12,23 +12,23 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.fasterxml.jackson.core.JsonToken.*;
 import static com.github.t1.rest.PathVariableExpression.*;
 import static java.util.Arrays.*;
 import static java.util.Collections.*;
+import static java.util.Locale.*;
 import static java.util.stream.Collectors.*;
 import static javax.ws.rs.core.MediaType.*;
-import static javax.xml.bind.DatatypeConverter.*;
-import static lombok.AccessLevel.*;
+import static java.nio.charset.StandardCharsets.*;
 
 @Immutable
-@Value
-@Getter(NONE)
 @JsonSerialize(using = Headers.HeadersSerializer.class)
 @JsonDeserialize(using = Headers.HeadersDeserializer.class)
 public class Headers implements Iterable<Header>, Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     public static class HeadersSerializer extends JsonSerializer<Headers> {
         @Override
@@ -92,42 +92,78 @@ public class Headers implements Iterable<Header>, Serializable {
         }
     }
 
-    private final Header head;
-    private final Headers tail;
+    private static final Header[] NO_HEADERS = new Header[0];
+    /** up to this size, a linear scan is faster than building and using an index */
+    private static final int MAX_UNINDEXED = 8;
+
+    /**
+     * The headers in the order they were added. Appending headers shares this array, as long as there is room and the
+     * next slot has not already been claimed by another append to the same headers. So only the first {@link #size}
+     * elements belong to this instance; they are never changed.
+     */
+    private final Header[] headers;
+    private final int size;
+    /** the number of elements in {@link #headers} that have been claimed by any instance sharing it */
+    private final transient AtomicInteger claimed;
+    /** lazily built for bigger headers: lower case name -> headers with that name in the order they were added */
+    private transient volatile Map<String, List<Header>> index;
 
     /** creates an {@link #isEmpty() empty} header to start with */
     public Headers() {
-        this(null, null);
+        this(NO_HEADERS, 0, new AtomicInteger());
+    }
+
+    /** bulk creation, e.g. for a response, without the intermediate instances */
+    Headers(List<Header> headers) {
+        this(headers.toArray(NO_HEADERS), headers.size(), new AtomicInteger(headers.size()));
     }
 
-    private Headers(Header head, Headers tail) {
-        this.head = head;
-        this.tail = tail;
-        if (head == null)
-            assert tail == null : "a null-header should have no tail";
-        if (tail != null)
-            assert head != null : "a non-null tail should have a non-null header";
+    private Headers(Header[] headers, int size, AtomicInteger claimed) {
+        this.headers = headers;
+        this.size = size;
+        this.claimed = claimed;
     }
 
     /** is this a {@link #Headers empty} header */
     public boolean isEmpty() {
-        return head == null;
+        return size == 0;
     }
 
     public Headers header(String name, Object value) {
         return header(new Header(name, value.toString()));
     }
 
-    public Headers header(Header header) {
-        return new Headers(header, this);
+    public Headers header(@NonNull Header header) {
+        if (size < headers.length && claimed.compareAndSet(size, size + 1)) {
+            headers[size] = header;
+            return new Headers(headers, size + 1, claimed);
+        }
+        Header[] copy = Arrays.copyOf(headers, Math.max(4, size * 2));
+        copy[size] = header;
+        return new Headers(copy, size + 1, new AtomicInteger(size + 1));
     }
 
+    /** the header with that name that was added last */
     public Header firstHeader(String name) {
-        if (head == null)
+        if (size <= MAX_UNINDEXED) {
+            for (int i = size - 1; i >= 0; i--)
+                if (headers[i].isNamed(name))
+                    return headers[i];
             return null;
-        if (head.isNamed(name))
-            return head;
-        return tail.firstHeader(name);
+        }
+        List<Header> named = index().get(name.toLowerCase(ROOT));
+        return (named == null) ? null : named.get(named.size() - 1);
+    }
+
+    private Map<String, List<Header>> index() {
+        Map<String, List<Header>> result = index;
+        if (result == null) {
+            result = new HashMap<>();
+            for (int i = 0; i < size; i++)
+                result.computeIfAbsent(headers[i].name().toLowerCase(ROOT), name -> new ArrayList<>()).add(headers[i]);
+            index = result; // racy, but idempotent
+        }
+        return result;
     }
 
     public Iterable<String> names() {
@@ -145,9 +181,14 @@ public class Headers implements Iterable<Header>, Serializable {
 
     public List<String> values(String name) {
         List<String> result = new ArrayList<>();
-        for (Header header : this)
-            if (header.isNamed(name))
+        if (size <= MAX_UNINDEXED) {
+            for (int i = 0; i < size; i++)
+                if (headers[i].isNamed(name))
+                    result.add(headers[i].value());
+        } else {
+            for (Header header : index().getOrDefault(name.toLowerCase(ROOT), emptyList()))
                 result.add(header.value());
+        }
         return unmodifiableList(result);
     }
 
@@ -156,18 +197,65 @@ public class Headers implements Iterable<Header>, Serializable {
     }
 
     public int size() {
-        if (head == null)
-            return 0;
-        return 1 + tail.size();
+        return size;
     }
 
     @Override
     public Iterator<Header> iterator() {
-        Deque<Header> result = new LinkedList<>();
-        for (Headers headers = this; headers != null; headers = headers.tail)
-            if (headers.head != null)
-                result.push(headers.head);
-        return unmodifiableCollection(result).iterator();
+        return new Iterator<Header>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Header next() {
+                if (next >= size)
+                    throw new NoSuchElementException();
+                return headers[next++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Headers))
+            return false;
+        Headers that = (Headers) obj;
+        if (this.size != that.size)
+            return false;
+        for (int i = 0; i < size; i++)
+            if (!this.headers[i].equals(that.headers[i]))
+                return false;
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size; i++)
+            result = 31 * result + headers[i].hashCode();
+        return result;
+    }
+
+    /** don't serialize elements appended by others sharing the array */
+    private Object writeReplace() {
+        return new SerializedHeaders(Arrays.copyOf(headers, size));
+    }
+
+    @Value
+    private static class SerializedHeaders implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        Header[] headers;
+
+        private Object readResolve() {
+            return new Headers(asList(headers));
+        }
     }
 
     MultivaluedMap<String, String> toMultiValuedMap() {
@@ -237,7 +325,21 @@ public class Headers implements Iterable<Header>, Serializable {
             return WILDCARD_TYPE;
         if (contentType.startsWith("{") && contentType.endsWith(", q=1000}")) // Jersey/Dropwizard bug?
             contentType = contentType.substring(1, contentType.length() - 9);
-        return MediaType.valueOf(contentType);
+        return mediaType(contentType);
+    }
+
+    /** the same few content types are parsed over and over again, so we cache them, but not too many */
+    private static final int MAX_CACHED_MEDIA_TYPES = 256;
+    private static final Map<String, MediaType> MEDIA_TYPES = new ConcurrentHashMap<>();
+
+    private static MediaType mediaType(String string) {
+        MediaType mediaType = MEDIA_TYPES.get(string);
+        if (mediaType == null) {
+            mediaType = MediaType.valueOf(string);
+            if (MEDIA_TYPES.size() < MAX_CACHED_MEDIA_TYPES)
+                MEDIA_TYPES.putIfAbsent(string, mediaType);
+        }
+        return mediaType;
     }
 
 
@@ -267,7 +369,7 @@ public class Headers implements Iterable<Header>, Serializable {
     }
 
     public List<MediaType> accept() {
-        return values(ACCEPT).stream().map(MediaType::valueOf).collect(toList());
+        return values(ACCEPT).stream().map(Headers::mediaType).collect(toList());
     }
 
     public boolean accepts(MediaType required) {
@@ -278,19 +380,19 @@ public class Headers implements Iterable<Header>, Serializable {
     }
 
 
+    /** Adds the header {@link Credentials#basicAuthHeader() pre-encoded} by the credentials. */
     public Headers basicAuth(Credentials credentials) {
-        return header(AUTHORIZATION, basicAuthValue(credentials));
+        return header(credentials.basicAuthHeader());
     }
 
     public boolean isBasicAuth(Credentials credentials) {
-        return contains(AUTHORIZATION) && firstValue(AUTHORIZATION).equals(basicAuthValue(credentials));
-    }
-
-    private String basicAuthValue(Credentials credentials) {
-        return "Basic " + base64(credentials.userName() + ":" + credentials.password());
+        String value = firstValue(AUTHORIZATION);
+        return value != null && value.equals(credentials.basicAuthHeader().value());
     }
 
-    private String base64(String string) {
-        return printBase64Binary(string.getBytes());
+    /** The user name and password are encoded as UTF-8, as recommended by RFC 7617 */
+    static Header basicAuthHeader(String userName, String password) {
+        byte[] bytes = (userName + ":" + password).getBytes(UTF_8);
+        return new Header(AUTHORIZATION, "Basic " + Base64.getEncoder().encodeToString(bytes));
     }
 }
@@ -0,0 +1,57 @@
+package com.github.t1.rest;
+
+import javax.ws.rs.core.MultivaluedMap;
+import java.util.*;
+
+/** In the order the keys were added; the <code>MultivaluedHashMap</code> of JAX-RS 2.0 is not available in 1.1 */
+class LinkedMultivaluedMap<K, V> extends LinkedHashMap<K, List<V>> implements MultivaluedMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    private List<V> values(K key) {
+        return computeIfAbsent(key, k -> new ArrayList<>());
+    }
+
+    @Override
+    public void putSingle(K key, V value) {
+        put(key, new ArrayList<>(Collections.singletonList(value)));
+    }
+
+    @Override
+    public void add(K key, V value) {
+        values(key).add(value);
+    }
+
+    @Override
+    public V getFirst(K key) {
+        List<V> values = get(key);
+        return (values == null || values.isEmpty()) ? null : values.get(0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void addAll(K key, V... newValues) {
+        addAll(key, Arrays.asList(newValues));
+    }
+
+    @Override
+    public void addAll(K key, List<V> valueList) {
+        values(key).addAll(valueList);
+    }
+
+    @Override
+    public void addFirst(K key, V value) {
+        values(key).add(0, value);
+    }
+
+    @Override
+    public boolean equalsIgnoreValueOrder(MultivaluedMap<K, V> other) {
+        if (other == null || !keySet().equals(other.keySet()))
+            return false;
+        for (Map.Entry<K, List<V>> entry : entrySet()) {
+            List<V> otherValues = other.get(entry.getKey());
+            if (otherValues.size() != entry.getValue().size() || !otherValues.containsAll(entry.getValue()))
+                return false;
+        }
+        return true;
+    }
+}
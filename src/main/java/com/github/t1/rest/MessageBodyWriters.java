@@ -0,0 +1,124 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.fallback.*;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.concurrent.Immutable;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link MessageBodyWriter}s of a {@link RestContext}, the last added first. The writer and content type chosen
+ * for a type is cached, so it's shared by all contexts with the same writers.
+ */
+@Slf4j
+@Immutable
+class MessageBodyWriters implements Iterable<MessageBodyWriter<?>> {
+    /** the more specific writers are asked first, so they must be added last */
+    static MessageBodyWriters load() {
+        MessageBodyWriters result = new MessageBodyWriters(new YamlMessageBodyWriter(), null)
+                .and(new XmlMessageBodyWriter())
+                .and(new JsonMessageBodyWriter())
+                .and(new FormMessageBodyWriter())
+                .and(new InputStreamMessageBodyWriter())
+                .and(new ByteArrayMessageBodyWriter())
+                .and(new StringMessageBodyWriter());
+        for (MessageBodyWriter<?> writer : ServiceLoader.load(MessageBodyWriter.class))
+            result = result.and(writer);
+        log.debug("loaded MessageBodyWriters: {}", result);
+        return result;
+    }
+
+    @Value
+    private static class WriterKey {
+        Class<?> type;
+        /** <code>null</code> for the default content type of the writer */
+        MediaType contentType;
+    }
+
+    @Value
+    private static class Choice {
+        MessageBodyWriter<Object> writer;
+        MediaType contentType;
+    }
+
+    private final MessageBodyWriter<?> head;
+    private final MessageBodyWriters tail;
+    private final ConcurrentMap<WriterKey, Choice> choices = new ConcurrentHashMap<>();
+
+    private MessageBodyWriters(MessageBodyWriter<?> head, MessageBodyWriters tail) {
+        this.head = head;
+        this.tail = tail;
+    }
+
+    MessageBodyWriters and(MessageBodyWriter<?> writer) {
+        return new MessageBodyWriters(writer, this);
+    }
+
+    /** @param contentType <code>null</code> to use the content type the first suitable writer produces by default */
+    RequestEntity entity(@NonNull Object value, MediaType contentType) {
+        WriterKey key = new WriterKey(value.getClass(), contentType);
+        Choice choice = choices.get(key); // cheaper than computeIfAbsent for hits
+        if (choice == null)
+            choice = choices.computeIfAbsent(key, k -> choose(k.type(), k.contentType()));
+        return new RequestEntity(value, choice.contentType(), choice.writer());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Choice choose(Class<?> type, MediaType contentType) {
+        for (MessageBodyWriter<?> writer : this) {
+            MediaType mediaType = (contentType == null) ? defaultContentType(writer) : contentType;
+            if (mediaType != null && writer.isWriteable(type, type, null, mediaType)) {
+                log.debug("use {} to write {} as {}", writer.getClass(), type, mediaType);
+                return new Choice((MessageBodyWriter<Object>) writer, mediaType);
+            }
+        }
+        throw new IllegalArgumentException("no MessageBodyWriter found for " + type
+                + ((contentType == null) ? "" : " as " + contentType));
+    }
+
+    /** the first concrete type the writer produces; <code>null</code> if it only produces wildcards */
+    private static MediaType defaultContentType(MessageBodyWriter<?> writer) {
+        Produces produces = writer.getClass().getAnnotation(Produces.class);
+        if (produces != null)
+            for (String value : produces.value()) {
+                MediaType mediaType = MediaType.valueOf(value);
+                if (!mediaType.isWildcardType() && !mediaType.isWildcardSubtype())
+                    return mediaType;
+            }
+        return null;
+    }
+
+    @Override
+    public Iterator<MessageBodyWriter<?>> iterator() {
+        return new Iterator<MessageBodyWriter<?>>() {
+            private MessageBodyWriters writers = MessageBodyWriters.this;
+
+            @Override
+            public boolean hasNext() {
+                return writers != null;
+            }
+
+            @Override
+            public MessageBodyWriter<?> next() {
+                if (writers == null)
+                    throw new NoSuchElementException();
+                MessageBodyWriter<?> head = writers.head;
+                writers = writers.tail;
+                return head;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner out = new StringJoiner(", ", "[", "]");
+        for (MessageBodyWriter<?> writer : this)
+            out.add(writer.getClass().getName());
+        return out.toString();
+    }
+}
@@ -3,18 +3,27 @@ package com.github.t1.rest;
 import lombok.*;
 
 import java.util.*;
-import java.util.regex.*;
 
 @Value
 public class PathVariableExpression {
     public static List<String> variables(String string) {
         List<String> out = new ArrayList<>();
-        Matcher matcher = Pattern.compile("\\{(?<name>.*?)\\}").matcher(string);
-        while (matcher.find())
-            out.add(matcher.group("name"));
+        for (int open = string.indexOf('{'); open >= 0; ) {
+            int close = string.indexOf('}', open + 1);
+            if (close < 0)
+                break;
+            out.add(string.substring(open + 1, close));
+            open = string.indexOf('{', close + 1);
+        }
         return out;
     }
 
+    /** Does the string contain any variable? Like <code>!variables(string).isEmpty()</code>, but allocation free. */
+    public static boolean hasVariables(String string) {
+        int open = string.indexOf('{');
+        return open >= 0 && string.indexOf('}', open + 1) >= 0;
+    }
+
     public static String replaceVariable(String string, String name, Object value) {
         return (string == null) ? null : string.replace("{" + name + "}", value.toString());
     }
@@ -0,0 +1,76 @@
+package com.github.t1.rest;
+
+import lombok.*;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import javax.annotation.concurrent.Immutable;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.*;
+import java.lang.annotation.Annotation;
+
+/**
+ * The body of a request, and the {@link MessageBodyWriter} to write it with the content type. The body is written
+ * directly to the connection, so it never has to be held in memory as a whole; if the writer doesn't know the size in
+ * advance, it's sent with chunked transfer encoding.
+ */
+@Immutable
+@Value
+public class RequestEntity {
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+
+    @NonNull Object value;
+    @NonNull MediaType contentType;
+    @NonNull MessageBodyWriter<Object> writer;
+
+    HttpEntity httpEntity() {
+        return new WriterEntity();
+    }
+
+    /** an InputStream can be written only once */
+    public boolean isRepeatable() {
+        return !(value instanceof InputStream);
+    }
+
+    /** careful: the content type field of the super class hides ours */
+    private class WriterEntity extends AbstractHttpEntity {
+        private final long length;
+
+        private WriterEntity() {
+            MediaType mediaType = RequestEntity.this.contentType;
+            this.length = writer.getSize(value, value.getClass(), value.getClass(), NO_ANNOTATIONS, mediaType);
+            setContentType(mediaType.toString());
+            setChunked(length < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return RequestEntity.this.isRepeatable();
+        }
+
+        @Override
+        public long getContentLength() {
+            return length;
+        }
+
+        /** only for clients that need to pull the body, e.g. the async client, so we have to buffer it */
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            writer.writeTo(value, value.getClass(), value.getClass(), NO_ANNOTATIONS, RequestEntity.this.contentType,
+                    new LinkedMultivaluedMap<>(), out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -9,27 +9,83 @@ import javax.ws.rs.ext.MessageBodyReader;
 import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.github.t1.rest.VendorType.*;
+import static java.util.Collections.*;
 import static java.util.Locale.*;
 import static javax.ws.rs.core.MediaType.*;
+import static lombok.AccessLevel.*;
 
 /**
  * Holds the java type that should be converted to and the converters to do the actual conversion for some content type
  * returned by the http request.
+ * <p>
+ * Converters are cached and shared by the {@link RestContext}, so they must not be modified after they are built;
+ * only the reader chosen for a content type is remembered, as that's always the same.
  */
 @Slf4j
 @Getter
 public class ResponseConverter<T> {
+    private static final int MAX_DISPATCH_SIZE = 256;
+
     private final Class<T> acceptedType;
     private final Type genericType;
     private final VendorType vendorType;
+    @Getter(NONE)
     private final Map<MediaType, MessageBodyReader<T>> readers = new LinkedHashMap<>();
+    /** read the body directly from the connection instead of buffering it first */
+    private final boolean streaming;
+    /**
+     * lazily filled: the reader chosen for a content type <code>type/subtype</code>, i.e. without parameters; but not
+     * too many, as wildcard readers match any content type a server may send, and the converters are long-lived
+     */
+    @Getter(NONE)
+    private final ConcurrentMap<String, MessageBodyReader<T>> dispatch = new ConcurrentHashMap<>();
+    /** lazily created: the copy with the other {@link #streaming}, so it's cached as long as this converter is */
+    @Getter(NONE)
+    private volatile ResponseConverter<T> toggled;
 
+    /** A converter for that type; it's {@link #streaming() streaming}, if the type is an {@link InputStream} */
     public ResponseConverter(Class<T> acceptedType, Type genericType) {
+        this(acceptedType, genericType, InputStream.class.isAssignableFrom(acceptedType));
+    }
+
+    private ResponseConverter(Class<T> acceptedType, Type genericType, boolean streaming) {
         this.acceptedType = acceptedType;
         this.genericType = genericType;
         this.vendorType = acceptedType.getAnnotation(VendorType.class);
+        this.streaming = streaming;
+    }
+
+    /**
+     * A copy of this converter with the same readers, but {@link #streaming() streaming} or not. The copy is created
+     * only once, so a cached converter stays cached, e.g. for the plain <code>GET()</code> that always streams.
+     */
+    public ResponseConverter<T> streaming(boolean streaming) {
+        if (streaming == this.streaming)
+            return this;
+        ResponseConverter<T> copy = toggled;
+        if (copy == null) {
+            copy = new ResponseConverter<>(acceptedType, genericType, streaming);
+            copy.readers.putAll(readers);
+            copy.toggled = this;
+            toggled = copy; // a race only creates an equivalent copy
+        }
+        return copy;
+    }
+
+    /** A copy of this converter with the readers of the other converter added */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ResponseConverter<T> and(ResponseConverter<?> other) {
+        ResponseConverter<T> copy = new ResponseConverter<>(acceptedType, genericType, streaming);
+        copy.readers.putAll(readers);
+        copy.readers.putAll((Map) other.readers);
+        return copy;
+    }
+
+    public Map<MediaType, MessageBodyReader<T>> readers() {
+        return unmodifiableMap(readers);
     }
 
     public List<MediaType> mediaTypes() {
@@ -89,6 +145,17 @@ public class ResponseConverter<T> {
     }
 
     private MessageBodyReader<T> converterFor(MediaType expected) {
+        String key = expected.getType().toLowerCase(ROOT) + "/" + expected.getSubtype().toLowerCase(ROOT);
+        MessageBodyReader<T> reader = dispatch.get(key);
+        if (reader == null) {
+            reader = scanFor(expected);
+            if (dispatch.size() < MAX_DISPATCH_SIZE)
+                dispatch.putIfAbsent(key, reader);
+        }
+        return reader;
+    }
+
+    private MessageBodyReader<T> scanFor(MediaType expected) {
         for (MediaType actual : readers.keySet())
             if (expected.isCompatible(actual))
                 if (readers.get(actual).isReadable(acceptedType, genericType, null, actual))
@@ -108,6 +175,7 @@ public class ResponseConverter<T> {
 
     @Override
     public String toString() {
-        return "Converter[" + genericType + ((vendorType == null) ? "" : "/" + vendorType) + "]:" + readers;
+        return "Converter[" + genericType + ((vendorType == null) ? "" : "/" + vendorType) + "]"
+                + (streaming ? "(streaming)" : "") + ":" + readers;
     }
 }
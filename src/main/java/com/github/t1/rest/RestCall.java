@@ -3,9 +3,12 @@ package com.github.t1.rest;
 import lombok.*;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.*;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 
 import javax.annotation.concurrent.Immutable;
 import javax.ws.rs.core.Response.*;
@@ -13,10 +16,15 @@ import javax.ws.rs.core.Response.Status.Family;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
 
 @Immutable
 @Slf4j
 abstract class RestCall {
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+
     @Value
     @Accessors(fluent = false)
     private final class UnknownStatus implements StatusType {
@@ -42,15 +50,24 @@ abstract class RestCall {
     @Getter
     private final Headers requestHeaders;
     private final CloseableHttpClient apacheClient;
+    /** supplied lazily, as most calls are synchronous; <code>null</code> for mocks, etc. */
+    private final Supplier<CloseableHttpAsyncClient> apacheAsyncClient;
     private final HttpRequestBase request;
 
     public RestCall(RestContext context, Class<? extends Annotation> method, URI uri, Headers requestHeaders,
             CloseableHttpClient apacheClient, HttpRequestBase request) {
+        this(context, method, uri, requestHeaders, apacheClient, null, request);
+    }
+
+    public RestCall(RestContext context, Class<? extends Annotation> method, URI uri, Headers requestHeaders,
+            CloseableHttpClient apacheClient, Supplier<CloseableHttpAsyncClient> apacheAsyncClient,
+            HttpRequestBase request) {
         this.context = context;
         this.method = method;
         this.uri = uri;
         this.requestHeaders = requestHeaders;
         this.apacheClient = apacheClient;
+        this.apacheAsyncClient = apacheAsyncClient;
         this.request = request;
         initRequest();
     }
@@ -59,29 +76,115 @@ abstract class RestCall {
         for (Headers.Header header : requestHeaders) {
             request.addHeader(header.name(), header.value());
         }
+        if (context != null && !context.acceptedEncodings().isEmpty() && !requestHeaders.contains(ACCEPT_ENCODING))
+            request.addHeader(ACCEPT_ENCODING, context.acceptEncoding());
+    }
+
+    /** Send this body with an entity enclosing request, e.g. a POST; only while creating the call. */
+    RestCall body(HttpEntity entity) {
+        if (!(request instanceof HttpEntityEnclosingRequest))
+            throw new IllegalStateException("can't send a body with " + request);
+        ((HttpEntityEnclosingRequest) request).setEntity(entity);
+        return this;
     }
 
     public RestResponse execute() {
         log.debug("execute {}", request);
-        try (CloseableHttpResponse apacheResponse = apacheClient.execute(request)) {
-            return convert(apacheResponse);
-        } catch (ConnectTimeoutException | SocketTimeoutException e) {
-            throw new HttpTimeoutException("timeout on " + request + ": " + e.getMessage(), e);
+        CloseableHttpResponse apacheResponse = null;
+        boolean handedOver = false;
+        try {
+            apacheResponse = apacheClient.execute(request);
+            RestResponse response = convert(apacheResponse, System.nanoTime());
+            handedOver = streaming();
+            return response;
         } catch (IOException e) {
-            throw new RuntimeException("can't execute " + request + ": " + e.getMessage(), e);
+            throw failed(e);
+        } finally {
+            if (apacheResponse != null && !handedOver)
+                close(apacheResponse);
         }
     }
 
-    protected abstract RestResponse convert(CloseableHttpResponse apacheResponse);
+    /** Is the response body read from the connection later, so the response must not be closed after conversion? */
+    protected boolean streaming() {
+        return false;
+    }
+
+    private void close(CloseableHttpResponse apacheResponse) {
+        try {
+            apacheResponse.close();
+        } catch (IOException e) {
+            log.debug("can't close response of {}", request, e);
+        }
+    }
+
+    /**
+     * Execute without blocking the calling thread. The response is converted with the
+     * {@link RestContext#asyncExecutor() async executor} of the context, so a big or slow body doesn't stall the other
+     * connections of the non-blocking client. If this call has no async client (e.g. when mocked), it falls back to a
+     * synchronous {@link #execute()}.
+     */
+    public CompletableFuture<? extends RestResponse> executeAsync() {
+        CompletableFuture<RestResponse> future = new CompletableFuture<>();
+        if (apacheAsyncClient == null) {
+            try {
+                future.complete(execute());
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        log.debug("execute async {}", request);
+        CompletableFuture<Supplier<RestResponse>> received = new CompletableFuture<>();
+        apacheAsyncClient.get().execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse apacheResponse) {
+                long firstByteNanos = System.nanoTime(); // the async client has already buffered the body
+                received.complete(() -> convert(apacheResponse, firstByteNanos));
+            }
+
+            @Override
+            public void failed(Exception e) {
+                received.completeExceptionally((e instanceof IOException) ? RestCall.this.failed((IOException) e) : e);
+            }
+
+            @Override
+            public void cancelled() {
+                received.cancel(false);
+            }
+        });
+        Executor executor = (context == null) ? ForkJoinPool.commonPool() : context.asyncExecutor();
+        return received.thenApplyAsync(Supplier::get, executor);
+    }
+
+    private RuntimeException failed(IOException e) {
+        if (e instanceof ConnectTimeoutException || e instanceof SocketTimeoutException)
+            return new HttpTimeoutException("timeout on " + request + ": " + e.getMessage(), e);
+        return new RuntimeException("can't execute " + request + ": " + e.getMessage(), e);
+    }
+
+    /** @param firstByteNanos the {@link System#nanoTime()} when the response arrived, before its body was read */
+    protected abstract RestResponse convert(HttpResponse apacheResponse, long firstByteNanos);
 
     protected Headers convert(org.apache.http.Header[] headers) {
-        Headers out = new Headers();
+        return convert(headers, false);
+    }
+
+    /** @param decoded drop the headers that only apply to the encoded body */
+    protected Headers convert(org.apache.http.Header[] headers, boolean decoded) {
+        List<Headers.Header> out = new ArrayList<>(headers.length);
         for (org.apache.http.Header header : headers)
-            out = out.header(header.getName(), header.getValue());
-        return out;
+            if (!decoded || !isEncodedBodyHeader(header.getName()))
+                out.add(new Headers.Header(header.getName(), header.getValue()));
+        return new Headers(out);
+    }
+
+    private static boolean isEncodedBodyHeader(String name) {
+        return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name)
+                || "Content-MD5".equalsIgnoreCase(name);
     }
 
-    protected StatusType status(CloseableHttpResponse apacheResponse) {
+    protected StatusType status(HttpResponse apacheResponse) {
         final int code = apacheResponse.getStatusLine().getStatusCode();
         StatusType status = Status.fromStatusCode(code);
         if (status == null)
@@ -1,16 +1,42 @@
 package com.github.t1.rest;
 
+import lombok.SneakyThrows;
+import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.cache.*;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.*;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.*;
+import org.apache.http.nio.conn.*;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
 
 import javax.annotation.concurrent.Immutable;
+import java.io.*;
 import java.lang.annotation.Annotation;
 import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
 
-/** A factory for all types of {@link RestCall}s. Useful for mocking. */
+import static java.util.concurrent.TimeUnit.*;
+
+/**
+ * A factory for all types of {@link RestCall}s. Useful for mocking.
+ * <p>
+ * The default factory shares one connection pool with all other default factories. Create a factory with a
+ * {@link ConnectionPoolConfig} to get an isolated pool; then you should {@link #close()} it when it's not used any
+ * more.
+ * <p>
+ * {@link EntityRestCall#executeAsync() Asynchronous calls} use a non-blocking client with a pool of the same
+ * config; it's only started when the first async call is executed.
+ */
 @Immutable
-public class RestCallFactory {
+public class RestCallFactory implements Closeable {
     private static final int DEFAULT_MAX_CACHE_ENTRIES = 1000;
     private static final int DEFAULT_MAX_CACHE_OBJECT_SIZE = 8192;
 
@@ -20,25 +46,166 @@ public class RestCallFactory {
             .setMaxObjectSize(DEFAULT_MAX_CACHE_OBJECT_SIZE)
             .build();
 
-    private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 1;
     private static final int DEFAULT_CONNECT_TIMEOUT = 1_000;
     private static final int DEFAULT_SOCKET_TIMEOUT = 5_000;
+    /** like the sync client, when only the time-to-live is configured */
+    private static final long DEFAULT_EVICTION_PERIOD = 10_000;
 
-    private static final RequestConfig DEFAULT_CONFIG = RequestConfig
-            .custom()
-            .setConnectionRequestTimeout(DEFAULT_CONNECTION_REQUEST_TIMEOUT)
-            .setConnectTimeout(DEFAULT_CONNECT_TIMEOUT)
-            .setSocketTimeout(DEFAULT_SOCKET_TIMEOUT)
-            .build();
+    private static final CloseableHttpClient CLIENT = client(ConnectionPoolConfig.DEFAULT);
 
-    private static final CloseableHttpClient CLIENT = CachingHttpClients
-            .custom()
-            .setCacheConfig(CACHE_CONFIG)
-            .setDefaultRequestConfig(DEFAULT_CONFIG)
-            .build();
+    private static CloseableHttpClient client(ConnectionPoolConfig pool) {
+        CachingHttpClientBuilder builder = CachingHttpClients.custom().setCacheConfig(CACHE_CONFIG);
+        builder.setDefaultRequestConfig(requestConfig(pool)).setConnectionManager(connectionManager(pool));
+        builder.disableContentCompression(); // the RestContext decides, and the async client doesn't support it
+        if (pool.maxIdleTime() > 0)
+            builder.evictIdleConnections(pool.maxIdleTime(), MILLISECONDS);
+        if (pool.timeToLive() > 0)
+            builder.evictExpiredConnections();
+        return builder.build();
+    }
+
+    private static RequestConfig requestConfig(ConnectionPoolConfig pool) {
+        return RequestConfig
+                .custom()
+                .setConnectionRequestTimeout(pool.connectionRequestTimeout())
+                .setConnectTimeout(DEFAULT_CONNECT_TIMEOUT)
+                .setSocketTimeout(DEFAULT_SOCKET_TIMEOUT)
+                .build();
+    }
+
+    private static PoolingHttpClientConnectionManager connectionManager(ConnectionPoolConfig pool) {
+        PoolingHttpClientConnectionManager connectionManager =
+                new PoolingHttpClientConnectionManager(pool.timeToLive(), MILLISECONDS);
+        connectionManager.setMaxTotal(pool.maxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.maxPerRoute());
+        for (Map.Entry<URI, Integer> override : pool.maxPerRouteOverrides().entrySet())
+            connectionManager.setMaxPerRoute(route(override.getKey()), override.getValue());
+        connectionManager.setValidateAfterInactivity(pool.validateAfterInactivity());
+        return connectionManager;
+    }
+
+    /** lazily created, so the reactor threads are only started, when async calls are actually used */
+    private static class SharedAsyncClient {
+        private static final CloseableHttpAsyncClient CLIENT =
+                asyncClient(ConnectionPoolConfig.DEFAULT, asyncConnectionManager(ConnectionPoolConfig.DEFAULT));
+    }
+
+    private static CloseableHttpAsyncClient asyncClient(ConnectionPoolConfig pool,
+            PoolingNHttpClientConnectionManager connectionManager) {
+        CloseableHttpAsyncClient client = HttpAsyncClients
+                .custom()
+                .setDefaultRequestConfig(requestConfig(pool))
+                .setConnectionManager(connectionManager)
+                .build();
+        client.start();
+        return client;
+    }
+
+    /** the async client builder has no idle eviction, so we do what the sync builder does */
+    private static ScheduledFuture<?> asyncEviction(ConnectionPoolConfig pool,
+            PoolingNHttpClientConnectionManager connectionManager) {
+        if (pool.maxIdleTime() <= 0 && pool.timeToLive() <= 0)
+            return null;
+        long period = (pool.maxIdleTime() > 0) ? pool.maxIdleTime() : DEFAULT_EVICTION_PERIOD;
+        return Delays.every(period, MILLISECONDS, () -> {
+            connectionManager.closeExpiredConnections();
+            if (pool.maxIdleTime() > 0)
+                connectionManager.closeIdleConnections(pool.maxIdleTime(), MILLISECONDS);
+        });
+    }
+
+    @SneakyThrows(IOReactorException.class)
+    private static PoolingNHttpClientConnectionManager asyncConnectionManager(ConnectionPoolConfig pool) {
+        PoolingNHttpClientConnectionManager connectionManager = new PoolingNHttpClientConnectionManager(
+                new DefaultConnectingIOReactor(IOReactorConfig.DEFAULT), null,
+                RegistryBuilder.<SchemeIOSessionStrategy>create()
+                        .register("http", NoopIOSessionStrategy.INSTANCE)
+                        .register("https", SSLIOSessionStrategy.getDefaultStrategy())
+                        .build(),
+                null, null, pool.timeToLive(), MILLISECONDS);
+        connectionManager.setMaxTotal(pool.maxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.maxPerRoute());
+        for (Map.Entry<URI, Integer> override : pool.maxPerRouteOverrides().entrySet())
+            connectionManager.setMaxPerRoute(route(override.getKey()), override.getValue());
+        return connectionManager;
+    }
+
+    /** the routes in the pool always have an explicit port, so we have to resolve the default ports here, too */
+    private static HttpRoute route(URI uri) {
+        boolean secure = "https".equals(uri.getScheme());
+        int port = (uri.getPort() > 0) ? uri.getPort() : secure ? 443 : 80;
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()), null, secure);
+    }
+
+    /** <code>null</code> for the shared, default pool */
+    /** The non-blocking client of an isolated pool; it's started by the first async call */
+    private static class LazyAsyncClient implements Supplier<CloseableHttpAsyncClient>, Closeable {
+        private final ConnectionPoolConfig pool;
+        /** guarded by this */
+        private CloseableHttpAsyncClient client;
+        /** guarded by this: closes idle and expired connections; <code>null</code> if neither is configured */
+        private ScheduledFuture<?> eviction;
+
+        private LazyAsyncClient(ConnectionPoolConfig pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public synchronized CloseableHttpAsyncClient get() {
+            if (client == null) {
+                PoolingNHttpClientConnectionManager connectionManager = asyncConnectionManager(pool);
+                client = asyncClient(pool, connectionManager);
+                eviction = asyncEviction(pool, connectionManager);
+            }
+            return client;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (eviction != null)
+                eviction.cancel(false);
+            if (client != null)
+                client.close();
+        }
+    }
+
+    private final ConnectionPoolConfig pool;
+    private final CloseableHttpClient client;
+    /** <code>null</code> for the shared, default pool */
+    private final LazyAsyncClient asyncClient;
+
+    /** Use the shared, default connection pool */
+    public RestCallFactory() {
+        this.pool = null;
+        this.client = CLIENT;
+        this.asyncClient = null;
+    }
+
+    /** Use an isolated connection pool with this config */
+    public RestCallFactory(ConnectionPoolConfig pool) {
+        this.pool = pool;
+        this.client = client(pool);
+        this.asyncClient = new LazyAsyncClient(pool);
+    }
 
     public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, RestContext context, URI uri,
             Headers headers, ResponseConverter<T> converter) {
-        return new EntityRestCall<>(context, method, uri, headers, CLIENT, converter);
+        return new EntityRestCall<>(context, method, uri, headers, client, asyncClient(), converter);
+    }
+
+    private Supplier<CloseableHttpAsyncClient> asyncClient() {
+        return (asyncClient == null) ? () -> SharedAsyncClient.CLIENT : asyncClient;
+    }
+
+    /** Close the connection pools, unless it's the shared, default pool */
+    @Override
+    public void close() throws IOException {
+        if (pool == null)
+            return;
+        try {
+            client.close();
+        } finally {
+            asyncClient.close();
+        }
     }
 }
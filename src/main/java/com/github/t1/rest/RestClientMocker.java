@@ -1,55 +1,264 @@
 package com.github.t1.rest;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.github.t1.rest.fallback.JsonMessageBodyReader;
+import com.github.t1.rest.fallback.*;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
-import javax.ws.rs.GET;
+import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response.Status;
+import java.io.*;
 import java.lang.annotation.Annotation;
-import java.net.URI;
+import java.net.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
 
 import static com.github.t1.rest.RestContext.*;
+import static java.util.concurrent.TimeUnit.*;
 import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
 
 /**
  * Utility class for programmatically simulating REST requests and their responses. Could be a JUnit rule, but we don't
  * want to have test dependencies at runtime.
+ * <p>
+ * The mocks can be used from many threads at once, e.g. as a stand-in for downstream services in throughput tests:
+ * the routes are looked up in a table that is prepared when they are mocked, and static responses are serialized only
+ * once per negotiated media type.
+ * <p>
+ * For load tests, every {@link RequestMock} can simulate a {@link RequestMock#latency(LatencyDistribution) latency},
+ * faults like {@link RequestMock#failWithTimeout(double, Duration) timeouts}, and a limited
+ * {@link RequestMock#bandwidth(long) bandwidth}. Synchronous calls wait on the calling thread, like a real blocking
+ * call; async calls are completed by a scheduler, so they don't tie up threads.
  *
  * @see RestClientRecorder
  */
 @Slf4j
 public class RestClientMocker {
+    /** The simulated latency of a {@link RequestMock}, i.e. the time until the response starts */
+    @FunctionalInterface
+    public interface LatencyDistribution {
+        LatencyDistribution NONE = random -> 0;
+
+        /** @return the latency in microseconds */
+        long sample(Random random);
+
+        static LatencyDistribution fixed(Duration latency) {
+            long micros = NANOSECONDS.toMicros(latency.toNanos());
+            return random -> micros;
+        }
+
+        static LatencyDistribution uniform(Duration min, Duration max) {
+            long from = NANOSECONDS.toMicros(min.toNanos());
+            long range = NANOSECONDS.toMicros(max.toNanos()) - from;
+            if (range < 0)
+                throw new IllegalArgumentException("min " + min + " is greater than max " + max);
+            return random -> from + (long) (random.nextDouble() * range);
+        }
+
+        /**
+         * The long tail typical for real services: the logarithm of the latency is normally distributed around the
+         * logarithm of the median, with the standard deviation <code>sigma</code>, e.g. 0.5
+         */
+        static LatencyDistribution logNormal(Duration median, double sigma) {
+            long micros = NANOSECONDS.toMicros(median.toNanos());
+            return random -> (long) (micros * Math.exp(sigma * random.nextGaussian()));
+        }
+
+        /**
+         * Latencies as measured, e.g. from a monitoring system: the counts of the buckets by their upper bounds. A
+         * bucket is picked by its weight, and the latency is uniformly distributed within the bucket.
+         */
+        static LatencyDistribution histogram(Map<Duration, ? extends Number> counts) {
+            TreeMap<Duration, ? extends Number> sorted = new TreeMap<>(counts);
+            long[] bounds = new long[sorted.size() + 1];
+            double[] cumulative = new double[sorted.size()];
+            double total = 0;
+            int i = 0;
+            for (Map.Entry<Duration, ? extends Number> bucket : sorted.entrySet()) {
+                total += bucket.getValue().doubleValue();
+                cumulative[i] = total;
+                bounds[++i] = NANOSECONDS.toMicros(bucket.getKey().toNanos());
+            }
+            if (total <= 0)
+                throw new IllegalArgumentException("empty histogram " + counts);
+            double sum = total;
+            return random -> {
+                double draw = random.nextDouble() * sum;
+                int bucket = 0;
+                while (bucket < cumulative.length - 1 && draw >= cumulative[bucket])
+                    bucket++;
+                return bounds[bucket] + (long) (random.nextDouble() * (bounds[bucket + 1] - bounds[bucket]));
+            };
+        }
+    }
+
     @RequiredArgsConstructor
     public class ResourceMock {
         private final UriTemplate uri;
 
         public RequestMock GET() {
+            return mock(GET.class);
+        }
+
+        public RequestMock POST() {
+            return mock(POST.class);
+        }
+
+        public RequestMock PUT() {
+            return mock(PUT.class);
+        }
+
+        public RequestMock DELETE() {
+            return mock(DELETE.class);
+        }
+
+        private RequestMock mock(Class<? extends Annotation> method) {
             RequestMock requestMock = new RequestMock();
-            RequestMock oldMock = mockedUris.put(uri.toUri(), requestMock);
+            RequestMock oldMock = routes.put(method, uri, requestMock);
             if (oldMock != null)
-                log.warn("replaced {} for {}", oldMock, uri);
+                log.warn("replaced {} for {} {}", oldMock, method.getSimpleName(), uri);
             return requestMock;
         }
     }
 
+    /**
+     * The mocks by http method and uri. Plain uris are looked up in a hash map; uri templates are compiled to regular
+     * expressions when they are mocked, and matched in that order. A variable matches one path element or query
+     * parameter value, a <code>{*star}</code> variable matches anything.
+     */
+    private static class Routes {
+        @Value
+        private static class Route {
+            Class<? extends Annotation> method;
+            URI uri;
+        }
+
+        @Value
+        private static class TemplateRoute {
+            Class<? extends Annotation> method;
+            String template;
+            Pattern pattern;
+            RequestMock mock;
+        }
+
+        private final ConcurrentMap<Route, RequestMock> plain = new ConcurrentHashMap<>();
+        private final List<TemplateRoute> templates = new CopyOnWriteArrayList<>();
+
+        private synchronized RequestMock put(Class<? extends Annotation> method, UriTemplate uri, RequestMock mock) {
+            String template = uri.toString();
+            if (template.indexOf('{') < 0)
+                return plain.put(new Route(method, uri.toUri()), mock);
+            TemplateRoute route = new TemplateRoute(method, template, compile(template), mock);
+            for (int i = 0; i < templates.size(); i++) {
+                TemplateRoute old = templates.get(i);
+                if (old.method() == method && old.template().equals(template)) {
+                    templates.set(i, route);
+                    return old.mock();
+                }
+            }
+            templates.add(route);
+            return null;
+        }
+
+        private static Pattern compile(String template) {
+            StringBuilder regex = new StringBuilder();
+            int start = 0;
+            for (int open = template.indexOf('{'); open >= 0; open = template.indexOf('{', start)) {
+                int close = template.indexOf('}', open);
+                if (close < 0)
+                    break;
+                regex.append(Pattern.quote(template.substring(start, open)));
+                regex.append((template.charAt(open + 1) == '*') ? ".*" : "[^/?#&]+");
+                start = close + 1;
+            }
+            regex.append(Pattern.quote(template.substring(start)));
+            return Pattern.compile(regex.toString());
+        }
+
+        private RequestMock get(Class<? extends Annotation> method, URI uri) {
+            RequestMock mock = plain.get(new Route(method, uri));
+            if (mock == null && !templates.isEmpty()) {
+                String string = uri.toString();
+                for (TemplateRoute route : templates)
+                    if (route.method() == method && route.pattern().matcher(string).matches())
+                        return route.mock();
+            }
+            return mock;
+        }
+
+        @Override
+        public String toString() {
+            List<String> out = new ArrayList<>();
+            plain.keySet().forEach(route -> out.add(route.method().getSimpleName() + " " + route.uri()));
+            templates.forEach(route -> out.add(route.method().getSimpleName() + " " + route.template()));
+            return out.toString();
+        }
+    }
+
     public static class RequestMock {
-        private Credentials requiredBasicAuthCredentials;
-        private MediaType responseContentType = TEXT_PLAIN_TYPE;
-        private Supplier<Object> bodySupplier;
+        /** a serialized response body and its headers */
+        @Value
+        private static class Serialized {
+            Headers headers;
+            byte[] body;
+        }
+
+        private enum FaultType {
+            timeout, status, connectionReset
+        }
+
+        @Value
+        private static class Fault {
+            FaultType type;
+            double rate;
+            /** only for {@link FaultType#status} */
+            Status status;
+            /** in microseconds; only for {@link FaultType#timeout} */
+            long timeout;
+        }
+
+        /** what a call does: wait and then respond or fail */
+        @RequiredArgsConstructor
+        private static class Simulation<T> {
+            /** in microseconds */
+            private final long delay;
+            private final Supplier<EntityResponse<T>> result;
+
+            private EntityResponse<T> run() {
+                Delays.sleep(delay);
+                return result.get();
+            }
+
+            private CompletableFuture<EntityResponse<T>> runAsync() {
+                return Delays.completeAfter(delay, result);
+            }
+        }
+
+        private volatile Credentials requiredBasicAuthCredentials;
+        private volatile MediaType responseContentType = TEXT_PLAIN_TYPE;
+        private volatile Supplier<Object> bodySupplier;
+        /** the static response per negotiated media type; <code>null</code> when the body is produced for every call */
+        private volatile ConcurrentMap<MediaType, Serialized> serialized;
+
+        private volatile LatencyDistribution latency = LatencyDistribution.NONE;
+        private final List<Fault> faults = new CopyOnWriteArrayList<>();
+        /** 0 for unlimited */
+        private volatile long bytesPerSecond;
+        private volatile Random random = new Random();
 
         public void respond(Object object) {
             this.bodySupplier = () -> object;
+            this.serialized = new ConcurrentHashMap<>();
         }
 
         public void respond(Object object, MediaType objectMediaType) {
-            this.bodySupplier = () -> object;
             this.responseContentType = objectMediaType;
+            respond(object);
         }
 
         public RequestMock requireBasicAuth(String username, String password) {
@@ -61,46 +270,147 @@ public class RestClientMocker {
             return this;
         }
 
+        public RequestMock latency(@NonNull LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /** Fail with a {@link HttpTimeoutException} after that time, at the rate between 0 and 1 */
+        public RequestMock failWithTimeout(double rate, Duration after) {
+            return fail(new Fault(FaultType.timeout, rate, null, NANOSECONDS.toMicros(after.toNanos())));
+        }
+
+        /** Respond with that status (e.g. a 5xx) and no body, at the rate between 0 and 1 */
+        public RequestMock failWithStatus(double rate, @NonNull Status status) {
+            return fail(new Fault(FaultType.status, rate, status, 0));
+        }
+
+        /** Fail like a connection that was reset by the server, at the rate between 0 and 1 */
+        public RequestMock failWithConnectionReset(double rate) {
+            return fail(new Fault(FaultType.connectionReset, rate, null, 0));
+        }
+
+        private synchronized RequestMock fail(Fault fault) {
+            double total = fault.rate();
+            for (Fault other : faults)
+                total += other.rate();
+            if (fault.rate() < 0 || total > 1)
+                throw new IllegalArgumentException("the fault rates must be between 0 and 1 in total: " + total);
+            faults.add(fault);
+            return this;
+        }
+
+        /** Deliver the response bodies with that many bytes per second */
+        public RequestMock bandwidth(long bytesPerSecond) {
+            if (bytesPerSecond <= 0)
+                throw new IllegalArgumentException("bandwidth must be positive: " + bytesPerSecond);
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /** Make the latencies and faults reproducible, at least for calls from one thread */
+        public RequestMock seed(long seed) {
+            this.random = new Random(seed);
+            return this;
+        }
+
+        /** The body is produced and serialized for every call; use {@link #respond(Object)} for static bodies. */
         public RequestMock produceBody(Supplier<Object> supplier) {
             this.bodySupplier = supplier;
+            this.serialized = null;
             return this;
         }
 
-        private <T> EntityRestCall<T> createGetRequest(final RestContext context, URI uri, final Headers requestHeaders,
-                final ResponseConverter<T> converter) {
-            return new EntityRestCall<T>(context, GET.class, uri, requestHeaders, null, converter) {
-                private Headers responseHeaders = new Headers();
-
+        private <T, M extends Annotation> EntityRestCall<T> createRequest(Class<M> method, final RestContext context,
+                URI uri, final Headers requestHeaders, final ResponseConverter<T> converter) {
+            return new EntityRestCall<T>(context, method, uri, requestHeaders, null, converter) {
                 @Override
                 public EntityResponse<T> execute() {
-                    if (requiredBasicAuthCredentials != null)
-                        if (!requestHeaders.isBasicAuth(requiredBasicAuthCredentials))
-                            return response(UNAUTHORIZED, body(""));
-                    return response(OK, body(bodySupplier.get()));
+                    return simulate(context, this, requestHeaders, converter).run();
                 }
 
-                private EntityResponse<T> response(Status status, byte[] body) {
-                    return new EntityResponse<>(context, status, new Headers(), converter, body);
+                @Override
+                public CompletableFuture<EntityResponse<T>> executeAsync() {
+                    return simulate(context, this, requestHeaders, converter).runAsync();
                 }
+            };
+        }
 
-                @SneakyThrows(JsonProcessingException.class)
-                private byte[] body(Object object) {
-                    if (object instanceof String && requestHeaders.accepts(responseContentType)) {
-                        contentType(responseContentType);
-                        return ((String) object).getBytes();
-                    }
-                    if (requestHeaders.accepts(APPLICATION_JSON_TYPE)) {
-                        contentType(APPLICATION_JSON_TYPE);
-                        return JsonMessageBodyReader.MAPPER.writeValueAsBytes(object);
-                    }
-                    throw new UnsupportedOperationException("the mock can't yet convert to any of " //
-                            + requestHeaders.accept());
+        private <T> Simulation<T> simulate(RestContext context, RestCall call, Headers requestHeaders,
+                ResponseConverter<T> converter) {
+            Random random = this.random;
+            long latency = this.latency.sample(random);
+            String request = call.method().getSimpleName() + " " + call.uri();
+            Fault fault = fault(random);
+            if (fault != null)
+                switch (fault.type()) {
+                    case timeout:
+                        return new Simulation<>(fault.timeout(), () -> {
+                            throw new HttpTimeoutException("simulated timeout on " + request);
+                        });
+                    case connectionReset:
+                        return new Simulation<>(latency, () -> {
+                            throw new RuntimeException("can't execute " + request + ": Connection reset",
+                                    new SocketException("Connection reset"));
+                        });
+                    case status:
+                        return new Simulation<>(latency, () -> new EntityResponse<>(context, fault.status(),
+                                new Headers(), converter, new byte[0]));
                 }
+            if (requiredBasicAuthCredentials != null && !requestHeaders.isBasicAuth(requiredBasicAuthCredentials))
+                return new Simulation<>(latency,
+                        () -> new EntityResponse<>(context, UNAUTHORIZED, new Headers(), converter, new byte[0]));
+            Serialized response = serialize(requestHeaders);
+            long bytesPerSecond = this.bytesPerSecond;
+            if (bytesPerSecond > 0 && converter.streaming())
+                return new Simulation<>(latency, () -> new EntityResponse<>(context, OK, response.headers(), converter,
+                        new ThrottledInputStream(new ByteArrayInputStream(response.body()), bytesPerSecond)));
+            long transfer = (bytesPerSecond > 0) ? response.body().length * 1_000_000L / bytesPerSecond : 0;
+            return new Simulation<>(latency + transfer,
+                    () -> new EntityResponse<>(context, OK, response.headers(), converter, response.body()));
+        }
 
-                private void contentType(MediaType type) {
-                    responseHeaders = responseHeaders.contentType(type);
-                }
-            };
+        private Fault fault(Random random) {
+            if (faults.isEmpty())
+                return null;
+            double draw = random.nextDouble();
+            for (Fault fault : faults) {
+                draw -= fault.rate();
+                if (draw < 0)
+                    return fault;
+            }
+            return null;
+        }
+
+        private Serialized serialize(Headers requestHeaders) {
+            Map<MediaType, Serialized> cache = this.serialized;
+            if (cache == null) {
+                Object body = bodySupplier.get();
+                return serialize(body, negotiate(body, requestHeaders));
+            }
+            Object body = bodySupplier.get(); // static, so this is cheap
+            MediaType type = negotiate(body, requestHeaders);
+            Serialized result = cache.get(type);
+            if (result == null)
+                result = cache.computeIfAbsent(type, key -> serialize(body, key));
+            return result;
+        }
+
+        private MediaType negotiate(Object body, Headers requestHeaders) {
+            if (body instanceof String && requestHeaders.accepts(responseContentType))
+                return responseContentType;
+            if (requestHeaders.accepts(APPLICATION_JSON_TYPE))
+                return APPLICATION_JSON_TYPE;
+            throw new UnsupportedOperationException("the mock can't yet convert to any of " //
+                    + requestHeaders.accept());
+        }
+
+        @SneakyThrows(JsonProcessingException.class)
+        private Serialized serialize(Object body, MediaType type) {
+            byte[] bytes = (body instanceof String && type.equals(responseContentType))
+                    ? ((String) body).getBytes(ConverterTools.getCharset(type))
+                    : JsonMessageBodyReader.MAPPER.writeValueAsBytes(body);
+            return new Serialized(new Headers().contentType(type), bytes);
         }
 
         @Override
@@ -110,18 +420,61 @@ public class RestClientMocker {
         }
     }
 
+    /** Delivers a streaming body with a limited bandwidth, blocking the reading thread */
+    private static class ThrottledInputStream extends FilterInputStream {
+        private final long bytesPerSecond;
+        private final int chunk;
+        private long start;
+        private long bytes;
+
+        private ThrottledInputStream(InputStream in, long bytesPerSecond) {
+            super(in);
+            this.bytesPerSecond = bytesPerSecond;
+            this.chunk = (int) Math.max(1, Math.min(8192, bytesPerSecond / 10));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (result >= 0)
+                throttle(1);
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int result = super.read(buffer, offset, Math.min(length, chunk));
+            if (result > 0)
+                throttle(result);
+            return result;
+        }
+
+        private void throttle(int count) {
+            if (start == 0)
+                start = System.nanoTime();
+            bytes += count;
+            long due = bytes * 1_000_000L / bytesPerSecond;
+            Delays.sleep(due - NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
     @Getter
     private RestContext context;
-    private final Map<URI, RequestMock> mockedUris = new LinkedHashMap<>();
+    private final Routes routes = new Routes();
     public RestCallFactory requestFactoryMock = new RestCallFactory() {
         @Override
         public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, RestContext context, URI uri,
                 Headers headers, ResponseConverter<T> converter) {
-            if (!mockedUris.containsKey(uri))
-                throw new IllegalArgumentException("unmocked createGetRequest on " + uri + "\n" //
-                        + "only know: " + mockedUris.keySet());
-            RequestMock requestMock = mockedUris.get(uri);
-            return requestMock.createGetRequest(context, uri, headers, converter);
+            RequestMock requestMock = routes.get(method, uri);
+            if (requestMock == null)
+                throw new IllegalArgumentException("unmocked " + method.getSimpleName() + " request on " + uri + "\n"
+                        + "only know: " + routes);
+            return requestMock.createRequest(method, context, uri, headers, converter);
         }
     };
 
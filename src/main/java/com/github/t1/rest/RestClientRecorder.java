@@ -1,21 +1,35 @@
 package com.github.t1.rest;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
+import org.apache.http.util.EntityUtils;
 
+import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.Response.Status;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.net.URI;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static com.github.t1.rest.RestContext.*;
+import static com.fasterxml.jackson.core.JsonToken.*;
 import static java.nio.charset.StandardCharsets.*;
+import static java.nio.file.StandardCopyOption.*;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Collections.*;
+import static java.util.Locale.*;
+import static java.util.concurrent.TimeUnit.*;
+import static javax.ws.rs.HttpMethod.*;
 
 /**
  * Utility class for record and play back REST requests and their responses. Could be a JUnit rule, but we don't want to
@@ -28,83 +42,387 @@ public class RestClientRecorder {
     private static final Path DEFAULT_FOLDER = Paths.get("src/test/resources");
     private static final ObjectMapper MAPPER = new ObjectMapper(new YAMLFactory());
 
-    @Data
+    /** How the recordings are stored in the file of each authority */
+    public enum Format {
+        /** readable and easy to edit, but loaded into memory completely */
+        yaml {
+            @Override
+            String fileName(String authority) {
+                return authority;
+            }
+        },
+        /**
+         * memory mapped and indexed by the requests only, so the responses are decoded only when they are played back.
+         * Use this for big recordings.
+         */
+        binary {
+            @Override
+            String fileName(String authority) {
+                return authority + ".rec";
+            }
+        };
+
+        abstract String fileName(String authority);
+    }
+
+    /**
+     * How long to delay the playback of a recording, so load tests against recorded traffic see realistic response
+     * times. Synchronous calls wait on the calling thread; async calls are completed by a scheduler, so delayed calls
+     * don't tie up threads.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        /** play back without delay */
+        Latency NONE = (recording, recordings) -> 0;
+
+        /** @return the delay in microseconds */
+        long delay(Recording recording, Recordings recordings);
+
+        /** the duration of the recorded call; no delay for recordings without timing */
+        static Latency exact() {
+            return scaled(1);
+        }
+
+        /** the duration of the recorded call times the factor; no delay for recordings without timing */
+        static Latency scaled(double factor) {
+            return (recording, recordings) -> (recording.timing() == null) ? 0
+                    : (long) (recording.timing().duration() * factor);
+        }
+
+        /** the duration of a random call recorded for the same uri, so repeated playbacks vary like the real thing */
+        static Latency sampled() {
+            return (recording, recordings) -> {
+                Timing timing = recordings.sampleTiming(recording.uri());
+                return (timing == null) ? 0 : timing.duration();
+            };
+        }
+    }
+
+    /**
+     * The recordings of one authority. Lookups are lock-free in a hash index of the method, uri, normalized request
+     * headers, and request body; writes are serialized per authority, so recording different authorities in parallel
+     * doesn't contend.
+     * <p>
+     * The file is an append-only journal of YAML documents: new {@link #record(Recording) recordings} are appended in
+     * batches by a background writer, so recording is cheap and doesn't wait for the disk; when a recording replaces an
+     * older one, the old one stays in the journal until it's compacted, i.e. rewritten as one list of the current
+     * recordings. That happens when the journal has grown to {@value #COMPACTION_FACTOR} times the current recordings.
+     *
+     * @see Format
+     */
     @RequiredArgsConstructor
     public static class Recordings {
+        private static final int COMPACTION_FACTOR = 4;
+        private static final int MIN_COMPACTION_SIZE = 64;
+
         private static final CollectionType RECORDING_LIST =
                 MAPPER.getTypeFactory().constructCollectionType(List.class, Recording.class);
 
-        private static Map<String, Recordings> CACHE = new HashMap<>();
+        /** the same authority can be recorded in different folders and formats */
+        @Value
+        private static class CacheKey {
+            /** absolute and normalized, or <code>null</code> for recordings in memory only */
+            Path folder;
+            Format format;
+            String authority;
+        }
+
+        private static final ConcurrentMap<CacheKey, Recordings> CACHE = new ConcurrentHashMap<>();
+
+        /** one daemon thread for all authorities; the rest is flushed when the JVM shuts down */
+        private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recordings-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(Recordings::flushAll, "recordings-flush"));
+        }
 
         public static Recordings get(Path folder, String authority) {
-            Recordings result = CACHE.get(authority);
-            if (result == null) {
-                Path file = (folder == null) ? null : folder.resolve(authority);
-                log.debug("create/load recordings for {} -> {}", authority, file);
-                result = new Recordings(file).load();
-                CACHE.put(authority, result);
-            }
+            return get(folder, authority, Format.yaml);
+        }
+
+        /** The recordings of that authority in that folder and format; a <code>null</code> folder is in memory only */
+        public static Recordings get(Path folder, String authority, Format format) {
+            CacheKey cacheKey = new CacheKey((folder == null) ? null : folder.toAbsolutePath().normalize(), format,
+                    authority);
+            Recordings result = CACHE.get(cacheKey); // cheaper than computeIfAbsent for hits
+            if (result == null)
+                result = CACHE.computeIfAbsent(cacheKey, key -> {
+                    Path file = (key.folder == null) ? null : key.folder.resolve(format.fileName(authority));
+                    log.debug("create/load {} recordings for {} -> {}", format, authority, file);
+                    return new Recordings(file, format).load();
+                });
             return result;
         }
 
+        /** Write all pending recordings of all authorities */
+        public static void flushAll() {
+            CACHE.values().forEach(Recordings::flush);
+        }
+
         public static void clearAll() {
             CACHE.keySet().forEach(Recordings::clear);
         }
 
-        @SneakyThrows(IOException.class)
+        /** Forget the recordings of that authority and delete their files, in all folders and formats */
         public static void clear(String authority) {
-            Recordings existing = CACHE.remove(authority);
+            CACHE.keySet().stream().filter(key -> key.authority.equals(authority)).forEach(Recordings::clear);
+        }
+
+        @SneakyThrows(IOException.class)
+        private static void clear(CacheKey key) {
+            Recordings existing = CACHE.remove(key);
             if (existing != null && existing.file != null) {
-                log.debug("clear recordings for {}", authority);
-                Files.delete(existing.file);
+                log.debug("clear recordings for {}", key);
+                synchronized (existing.fileLock) {
+                    existing.cleared = true;
+                    Files.deleteIfExists(existing.file);
+                }
             }
         }
 
+        /**
+         * Write the pending recordings and forget the recordings of that authority (in all folders and formats), so
+         * they are loaded again
+         */
+        public static void unload(String authority) {
+            CACHE.keySet().stream().filter(key -> key.authority.equals(authority)).forEach(key -> {
+                Recordings existing = CACHE.remove(key);
+                if (existing != null)
+                    existing.flush();
+            });
+        }
+
+        /** a recording and when it was added, so they can be written in that order */
+        @Value
+        private static class Entry {
+            long sequence;
+            /** decodes the recording only when it's needed, if it's in a binary file */
+            Supplier<Recording> source;
+
+            private Recording recording() {
+                return source.get();
+            }
+        }
+
+        @Getter
         private final Path file;
-        private List<Recording> recordings;
+        @Getter
+        private final Format format;
+        private final ConcurrentMap<RecordingKey, Entry> index = new ConcurrentHashMap<>();
+        /** all timings recorded per uri, including those of replaced recordings */
+        private final ConcurrentMap<URI, List<Timing>> timings = new ConcurrentHashMap<>();
+        /** guarded by this */
+        private long sequence;
+
+        private final Queue<Recording> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        /** the file is only written while holding this lock, so the index is not blocked by the disk */
+        private final Object fileLock = new Object();
+        /** guarded by the file lock: the number of recordings in the journal, including the replaced ones */
+        private int journalSize;
+        /** guarded by the file lock */
+        private boolean cleared;
 
         @SneakyThrows(IOException.class)
         private Recordings load() {
-            if (file != null && Files.exists(file))
-                try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
-                    log.debug("loaded recordings from {}", file);
-                    this.recordings = MAPPER.readValue(reader, RECORDING_LIST);
-                    log.debug("loaded {} recordings", recordings.size());
+            if (file == null || !Files.exists(file))
+                return this;
+            if (format == Format.binary) {
+                journalSize = BinaryRecordingFile.read(file, this::put);
+                log.debug("indexed {} recordings from {} journal entries in {}", index.size(), journalSize, file);
+            } else {
+                try (BufferedReader reader = Files.newBufferedReader(file, UTF_8);
+                     JsonParser documents = MAPPER.getFactory().createParser(reader)) {
+                    // not as a tree: that would lose repeated headers
+                    for (JsonToken token = documents.nextToken(); token != null; token = documents.nextToken()) {
+                        List<Recording> recordings = (token == START_ARRAY) // compacted, or an old file
+                                ? MAPPER.readValue(documents, RECORDING_LIST)
+                                : singletonList(MAPPER.readValue(documents, Recording.class));
+                        recordings.forEach(this::addOrReplace);
+                        journalSize += recordings.size();
+                    }
+                    log.debug("loaded {} recordings from {} journal entries in {}", index.size(), journalSize, file);
                 }
-            else
-                recordings = new ArrayList<>();
+            }
             return this;
         }
 
+        /** in the order they were recorded; this decodes all recordings in binary files */
+        public List<Recording> recordings() {
+            List<Entry> entries = entries();
+            List<Recording> result = new ArrayList<>(entries.size());
+            entries.forEach(entry -> result.add(entry.recording()));
+            return result;
+        }
+
+        private List<Entry> entries() {
+            List<Entry> entries = new ArrayList<>(index.values());
+            entries.sort(Comparator.comparingLong(Entry::sequence));
+            return entries;
+        }
+
+        /** Add the recording in memory only; see {@link #record(Recording)} */
         public Recordings addOrReplace(Recording recording) {
-            Iterator<Recording> iter = recordings.iterator();
-            while (iter.hasNext()) {
-                Recording existing = iter.next();
-                if (existing.matches(recording))
-                    iter.remove();
+            put(recording.key(), recording.timing(), () -> recording);
+            return this;
+        }
+
+        private synchronized void put(RecordingKey key, Timing timing, Supplier<Recording> source) {
+            index.put(key, new Entry(sequence++, source));
+            if (timing != null)
+                timings.computeIfAbsent(key.uri(), uri -> synchronizedList(new ArrayList<>())).add(timing);
+        }
+
+        /** a random one of the timings recorded for that uri, or <code>null</code> if there are none */
+        Timing sampleTiming(URI uri) {
+            List<Timing> list = timings.get(uri);
+            if (list == null)
+                return null;
+            synchronized (list) {
+                return list.isEmpty() ? null : list.get(ThreadLocalRandom.current().nextInt(list.size()));
+            }
+        }
+
+        /** Add the recording and append it to the file in the background */
+        public Recordings record(Recording recording) {
+            addOrReplace(recording);
+            if (file != null) {
+                pending.add(recording);
+                if (flushScheduled.compareAndSet(false, true))
+                    WRITER.execute(this::flushScheduled);
             }
-            this.recordings.add(recording);
             return this;
         }
 
+        private void flushScheduled() {
+            flushScheduled.set(false); // before draining, so later recordings schedule a new flush
+            flush();
+        }
+
+        /** Append the pending recordings to the file now, and compact it, if it has grown too much */
         @SneakyThrows(IOException.class)
+        public void flush() {
+            synchronized (fileLock) {
+                if (cleared || pending.isEmpty())
+                    return;
+                if (format == Format.binary) {
+                    try (BinaryRecordingFile.Writer writer = new BinaryRecordingFile.Writer(file, true)) {
+                        for (Recording recording = pending.poll(); recording != null; recording = pending.poll()) {
+                            writer.write(recording);
+                            journalSize++;
+                        }
+                    }
+                } else {
+                    try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8, CREATE, APPEND)) {
+                        for (Recording recording = pending.poll(); recording != null; recording = pending.poll()) {
+                            writer.write(MAPPER.writeValueAsString(recording));
+                            journalSize++;
+                        }
+                    }
+                }
+                if (journalSize > MIN_COMPACTION_SIZE && journalSize > COMPACTION_FACTOR * index.size())
+                    compact();
+            }
+        }
+
+        /** Rewrite the file with only the current recordings */
         public void write() {
-            if (file != null)
-                try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
-                    MAPPER.writeValue(writer, recordings);
+            synchronized (fileLock) {
+                if (file != null && !cleared) {
+                    pending.clear(); // they are all in the index
+                    compact();
                 }
+            }
+        }
+
+        @SneakyThrows(IOException.class)
+        private void compact() {
+            List<Entry> entries = entries();
+            log.debug("compact {} journal entries to {} recordings in {}", journalSize, entries.size(), file);
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            if (format == Format.binary) {
+                // one at a time, so they don't have to fit into memory; the old mapping stays valid after the move
+                try (BinaryRecordingFile.Writer writer = new BinaryRecordingFile.Writer(tmp, false)) {
+                    for (Entry entry : entries)
+                        writer.write(entry.recording());
+                }
+            } else {
+                try (BufferedWriter writer = Files.newBufferedWriter(tmp, UTF_8)) {
+                    writer.write(MAPPER.writeValueAsString(recordings()));
+                }
+            }
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            journalSize = entries.size();
         }
 
         public Recording find(URI uri, Headers requestHeaders) {
-            for (Recording recording : recordings)
-                if (recording.matches(uri, requestHeaders, null))
-                    return recording;
-            return null;
+            return find(GET, uri, requestHeaders, null);
         }
+
+        public Recording find(String method, URI uri, Headers requestHeaders, String requestBody) {
+            Entry entry = index.get(new RecordingKey(method, uri, requestHeaders, requestBody));
+            return (entry == null) ? null : entry.recording();
+        }
+    }
+
+    /**
+     * What identifies a request: the header names are case insensitive, and only the order of the values of one header
+     * is relevant, not the order of different headers.
+     */
+    @Value
+    static class RecordingKey {
+        String method;
+        URI uri;
+        /** normalized */
+        List<String> headers;
+        String body;
+
+        private RecordingKey(String method, URI uri, Headers headers, String body) {
+            this(method, uri, normalize(headers), body);
+        }
+
+        RecordingKey(String method, URI uri, List<String> headers, String body) {
+            this.method = (method == null) ? GET : method;
+            this.uri = uri;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        private static List<String> normalize(Headers headers) {
+            List<String> result = new ArrayList<>();
+            if (headers != null)
+                for (Headers.Header header : headers)
+                    result.add(header.name().toLowerCase(ROOT) + ": " + header.value());
+            result.sort(Comparator.comparing(header -> header.substring(0, header.indexOf(':')))); // stable
+            return result;
+        }
+    }
+
+    /** How long a recorded call took, to play it back with a realistic {@link Latency} */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Timing {
+        /** in microseconds, until the response arrived, before its body was read */
+        @JsonProperty
+        long timeToFirstByte;
+        /** in microseconds, until the body was read completely */
+        @JsonProperty
+        long duration;
+        /** in bytes, as transferred, i.e. possibly compressed */
+        @JsonProperty
+        long bodySize;
     }
 
     @Data
-    private static class Recording {
+    public static class Recording {
+        /** <code>null</code> in old recordings, which are all GETs */
+        @JsonProperty
+        String method;
         @JsonProperty
         URI uri;
 
@@ -120,19 +438,19 @@ public class RestClientRecorder {
         @JsonProperty
         String responseBody;
 
-        public boolean matches(Recording that) {
-            return matches(that.uri, that.requestHeaders, that.requestBody);
-        }
+        /** <code>null</code> in old recordings */
+        @JsonProperty
+        Timing timing;
 
-        public boolean matches(URI uri, Headers requestHeaders, String requestBody) {
-            return this.uri.equals(uri)
-                    && this.requestHeaders.equals(requestHeaders)
-                    && Objects.equals(this.requestBody, requestBody);
+        RecordingKey key() {
+            return new RecordingKey(method, uri, requestHeaders, requestBody);
         }
     }
 
     private class EntityRestCallDecorator<T> extends EntityRestCall<T> {
         private final EntityRestCall<T> delegate;
+        /** <code>null</code> if there is no body, or if it can be sent only once, so we can't read it */
+        protected String requestBody;
 
         public EntityRestCallDecorator(EntityRestCall<T> delegate) {
             super(delegate.context(), delegate.method(), delegate.uri(), delegate.requestHeaders(), null,
@@ -140,13 +458,28 @@ public class RestClientRecorder {
             this.delegate = delegate;
         }
 
+        @Override
+        @SneakyThrows(IOException.class)
+        RestCall body(HttpEntity entity) {
+            delegate.body(entity);
+            if (delegate instanceof EntityRestCallDecorator)
+                requestBody = ((EntityRestCallDecorator<?>) delegate).requestBody;
+            else if (entity.isRepeatable())
+                requestBody = EntityUtils.toString(entity, UTF_8);
+            return this;
+        }
+
+        protected String methodName() {
+            return method().getAnnotation(HttpMethod.class).value();
+        }
+
         @Override
         public EntityResponse<T> execute() {
             return delegate.execute();
         }
 
         protected Recordings recordings() {
-            return Recordings.get(folder, uri().getAuthority());
+            return Recordings.get(folder, uri().getAuthority(), format);
         }
     }
 
@@ -158,16 +491,21 @@ public class RestClientRecorder {
         @Override
         public EntityResponse<T> execute() {
             Recording recording = new Recording();
-            recording.uri(uri()).requestHeaders(requestHeaders());
+            recording.method(methodName()).uri(uri()).requestHeaders(requestHeaders()).requestBody(requestBody);
 
-            log.debug("record GET for {}", uri());
+            log.debug("record {} for {}", methodName(), uri());
+            long start = System.nanoTime();
             EntityResponse<T> response = super.execute();
+            long end = System.nanoTime();
+            long firstByte = (response.firstByteNanos() == 0) ? end : response.firstByteNanos();
+            recording.timing(new Timing(NANOSECONDS.toMicros(firstByte - start), NANOSECONDS.toMicros(end - start),
+                    response.compressedSize()));
 
             recording.responseStatus((Status) response.status()); // not perfect, but StatusType can't be deserialized
             recording.responseHeaders(response.headers());
             recording.responseBody(response.getBody(String.class));
 
-            recordings().addOrReplace(recording).write();
+            recordings().record(recording);
 
             log.debug("recorded {}", recording);
             return response;
@@ -181,10 +519,27 @@ public class RestClientRecorder {
 
         @Override
         public EntityResponse<T> execute() {
-            Recording recording = recordings().find(uri(), requestHeaders());
+            Recording recording = find();
             if (recording == null)
                 return super.execute();
-            log.debug("playback GET for {}", uri());
+            Delays.sleep(latency.delay(recording, recordings()));
+            return playback(recording);
+        }
+
+        @Override
+        public CompletableFuture<EntityResponse<T>> executeAsync() {
+            Recording recording = find();
+            if (recording == null)
+                return super.executeAsync();
+            return Delays.completeAfter(latency.delay(recording, recordings()), () -> playback(recording));
+        }
+
+        private Recording find() {
+            return recordings().find(methodName(), uri(), requestHeaders(), requestBody);
+        }
+
+        private EntityResponse<T> playback(Recording recording) {
+            log.debug("playback {} for {}", methodName(), uri());
             return new EntityResponse<>(context(), recording.responseStatus(), recording.responseHeaders(), converter(),
                     recording.responseBody().getBytes());
         }
@@ -194,16 +549,23 @@ public class RestClientRecorder {
         @Override
         public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, RestContext context, URI uri,
                 Headers headers, ResponseConverter<T> converter) {
-            log.info("create rest GET call for {}", uri);
+            log.info("create rest {} call for {}", method.getSimpleName(), uri);
             return new PlaybackEntityRestCall<>(
                     new RecorderEntityRestCall<>(
-                            originalRequestFactory.createRestCall(method, context, uri, headers, converter)));
+                            // the recorder has to read the body, so it can't be streaming
+                            originalRequestFactory.createRestCall(method, context, uri, headers,
+                                    converter.streaming(false))));
         }
     };
 
     @Getter
     private final RestContext context;
     private final Path folder;
+    private final Format format;
+    /** how long to delay playbacks; by default, they are not delayed */
+    @Setter
+    @NonNull
+    private volatile Latency latency = Latency.NONE;
     private final RestCallFactory originalRequestFactory;
 
     public RestClientRecorder() {
@@ -219,8 +581,13 @@ public class RestClientRecorder {
     }
 
     public RestClientRecorder(RestContext context, Path folder) {
+        this(context, folder, Format.yaml);
+    }
+
+    public RestClientRecorder(RestContext context, Path folder, Format format) {
         this.originalRequestFactory = context.restCallFactory();
         this.context = context.restCallFactory(requestFactoryMock);
         this.folder = folder;
+        this.format = format;
     }
 }
@@ -1,5 +1,6 @@
 package com.github.t1.rest;
 
+import com.github.t1.rest.Headers.Header;
 import com.github.t1.rest.UriTemplate.NonQuery;
 import com.github.t1.rest.fallback.*;
 import lombok.*;
@@ -10,11 +11,12 @@ import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Holds the configuration that applies to a set of {@link RestResource}s:
@@ -22,8 +24,12 @@ import java.util.*;
  * <li>The {@link RestResource resources} and {@link RestResourceRegistry resource registries} to lookup resources by
  * alias</li>
  * <li>The {@link Credentials} and {@link CredentialsRegistry credential registries} to lookup by base uri</li>
+ * <li>The {@link Authenticator}s for other authentication schemes</li>
  * <li>The {@link RestCallFactory} to create requests</li>
+ * <li>The {@link ContentEncoding}s to accept</li>
+ * <li>The {@link Executor} to convert the responses of async calls</li>
  * <li>The readers to convert bodies from their {@link MediaType} to the target object</li>
+ * <li>The writers to convert request bodies to their {@link MediaType}</li>
  * </ul>
  * For most applications, one of these is enough, so there's a default context: {@link #REST}.
  */
@@ -31,8 +37,13 @@ import java.util.*;
 @Immutable
 @RequiredArgsConstructor
 public class RestContext {
+    private static final List<ContentEncoding> DEFAULT_ACCEPTED_ENCODINGS =
+            Collections.unmodifiableList(Arrays.asList(ContentEncoding.values()));
+
     public static final RestContext REST = new RestContext();
 
+    private static final String AUTHORIZATION = "Authorization";
+
     @Immutable
     @Value
     private static class MessageBodyReaders implements Iterable<MessageBodyReader<?>> {
@@ -106,32 +117,74 @@ public class RestContext {
         }
     }
 
+    @Value
+    private static class ConverterKey {
+        Class<?> type;
+        Type genericType;
+        MediaType contentType;
+    }
+
     private final MessageBodyReaders readers;
+    /** only depends on the readers, so it's shared by all contexts with the same readers */
+    private final ConcurrentMap<ConverterKey, ResponseConverter<?>> converters;
+    private final MessageBodyWriters writers;
     @Getter
     private final RestCallFactory restCallFactory;
     private final RestResourceRegistry restResourceRegistry;
     private final CredentialsRegistry credentialsRegistry;
-
+    private final Authenticator authenticator;
+    @Getter
+    private final List<ContentEncoding> acceptedEncodings;
+    /** converts the responses of async calls, so the threads of the non-blocking client are not blocked */
+    private final Executor asyncExecutor;
+    /** the value of the <code>Accept-Encoding</code> header */
+    @Getter(value = AccessLevel.PACKAGE, lazy = true)
+    private final String acceptEncoding = ContentEncoding.accept(acceptedEncodings);
 
     private RestContext() {
-        this(MessageBodyReaders.load(), new RestCallFactory(), null, null);
+        this(MessageBodyReaders.load(), new ConcurrentHashMap<>(), MessageBodyWriters.load(), new RestCallFactory(),
+                null, null, null,
+                DEFAULT_ACCEPTED_ENCODINGS, ForkJoinPool.commonPool());
     }
 
     /** for CDI */
     @Inject
     private RestContext(
             Instance<RestResourceRegistry> restResourceRegistryInstances,
-            Instance<CredentialsRegistry> credentialsRegistryInstances) {
+            Instance<CredentialsRegistry> credentialsRegistryInstances,
+            Instance<Authenticator> authenticatorInstances) {
         this(
                 MessageBodyReaders.load(),
+                new ConcurrentHashMap<>(),
+                MessageBodyWriters.load(),
                 new RestCallFactory(),
                 CombinedRestResourceRegistry.combine(restResourceRegistryInstances),
-                CombinedCredentialsRegistry.combine(credentialsRegistryInstances));
+                CombinedCredentialsRegistry.combine(credentialsRegistryInstances),
+                nullIfEmpty(CombinedAuthenticator.combine(authenticatorInstances)),
+                DEFAULT_ACCEPTED_ENCODINGS, ForkJoinPool.commonPool());
+    }
+
+    private static Authenticator nullIfEmpty(Authenticator authenticator) {
+        return ((CombinedAuthenticator) authenticator).isEmpty() ? null : authenticator;
     }
 
     public RestContext and(MessageBodyReader<?> reader) {
-        return new RestContext(new MessageBodyReaders(reader, readers), restCallFactory, restResourceRegistry,
-                credentialsRegistry);
+        return new RestContext(new MessageBodyReaders(reader, readers), new ConcurrentHashMap<>(), writers,
+                restCallFactory, restResourceRegistry, credentialsRegistry, authenticator, acceptedEncodings,
+                asyncExecutor);
+    }
+
+    public RestContext and(MessageBodyWriter<?> writer) {
+        return new RestContext(readers, converters, writers.and(writer), restCallFactory, restResourceRegistry,
+                credentialsRegistry, authenticator, acceptedEncodings, asyncExecutor);
+    }
+
+    /**
+     * The body to send with a request, written by the first {@link MessageBodyWriter} that can write it with this
+     * content type, or with its default content type, if the content type is <code>null</code>.
+     */
+    public RequestEntity requestEntity(Object value, MediaType contentType) {
+        return writers.entity(value, contentType);
     }
 
     @SuppressWarnings("deprecation")
@@ -143,13 +196,11 @@ public class RestContext {
     //     return converterFor((Class<T>) type.getRawType(), type.getType(), null);
     // }
 
-    @SuppressWarnings({ "unchecked", "rawtypes", "deprecation" })
+    @SuppressWarnings({ "unchecked", "deprecation" })
     public <T> ResponseConverter<T> converterFor(Class<?> first, Class<?>... more) {
         ResponseConverter<T> result = converterFor((Class<T>) first, first, null);
-        for (Class<?> m : more) {
-            ResponseConverter<?> converter = converterFor(m, m, (MediaType) null);
-            result.readers().putAll((Map) converter.readers());
-        }
+        for (Class<?> m : more)
+            result = result.and(converterFor(m, m, (MediaType) null));
         return result;
     }
 
@@ -159,7 +210,16 @@ public class RestContext {
      * complete or otherwise not useful for this request, so you need a different one.
      */
     @Deprecated
+    @SuppressWarnings("unchecked")
     public <T> ResponseConverter<T> converterFor(Class<T> type, Type genericType, MediaType contentType) {
+        ConverterKey key = new ConverterKey(type, genericType, contentType);
+        ResponseConverter<?> converter = converters.get(key); // cheaper than computeIfAbsent for hits
+        if (converter == null)
+            converter = converters.computeIfAbsent(key, k -> createConverter(type, genericType, contentType));
+        return (ResponseConverter<T>) converter;
+    }
+
+    private <T> ResponseConverter<T> createConverter(Class<T> type, Type genericType, MediaType contentType) {
         ResponseConverter<T> converter = new ResponseConverter<>(type, genericType);
         for (MessageBodyReader<T> reader : this.<T>readers())
             converter.addIfReadable(reader, contentType);
@@ -176,16 +236,50 @@ public class RestContext {
 
 
     public RestContext restCallFactory(RestCallFactory restCallFactory) {
-        return new RestContext(readers, restCallFactory, restResourceRegistry, credentialsRegistry);
+        return new RestContext(readers, converters, writers, restCallFactory, restResourceRegistry,
+                credentialsRegistry, authenticator, acceptedEncodings, asyncExecutor);
+    }
+
+    /**
+     * Accept responses with these encodings, i.e. send them in the <code>Accept-Encoding</code> header and decode the
+     * response bodies; default are all {@link ContentEncoding}s. Pass none, to disable compression.
+     */
+    public RestContext acceptEncodings(ContentEncoding... encodings) {
+        return new RestContext(readers, converters, writers, restCallFactory, restResourceRegistry,
+                credentialsRegistry, authenticator, Collections.unmodifiableList(Arrays.asList(encodings.clone())),
+                asyncExecutor);
+    }
+
+    public Executor asyncExecutor() {
+        return asyncExecutor;
+    }
+
+    /**
+     * Convert the responses of async calls with this executor; default is the {@link ForkJoinPool#commonPool() common
+     * pool}. The threads of the non-blocking client are never blocked by conversions, so it can serve many connections.
+     */
+    public RestContext asyncExecutor(@NonNull Executor asyncExecutor) {
+        return new RestContext(readers, converters, writers, restCallFactory, restResourceRegistry,
+                credentialsRegistry, authenticator, acceptedEncodings, asyncExecutor);
     }
 
     public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, URI uri, Headers headers,
             Class<T> acceptedType, Type genericType) {
+        @SuppressWarnings("deprecation") ResponseConverter<T> converter = converterFor(acceptedType, genericType, null);
+        return createRestCall(method, uri, headers, converter);
+    }
+
+    public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, URI uri, Headers headers,
+            ResponseConverter<T> converter) {
         assert method.isAnnotationPresent(HttpMethod.class);
         Credentials credentials = getCredentials(uri);
-        if (credentials != null)
+        if (credentials != null) {
             headers = headers.basicAuth(credentials);
-        @SuppressWarnings("deprecation") ResponseConverter<T> converter = converterFor(acceptedType, genericType, null);
+        } else if (authenticator != null && !headers.contains(AUTHORIZATION)) {
+            Header authorization = authenticator.authorization(uri);
+            if (authorization != null)
+                headers = headers.header(authorization);
+        }
         return restCallFactory.createRestCall(method, this, uri, headers, converter);
     }
 
@@ -203,8 +297,18 @@ public class RestContext {
     }
 
     public RestContext register(String alias, RestResource resource) {
-        return new RestContext(readers, restCallFactory,
-                new StaticRestResourceRegistry(alias, resource, this.restResourceRegistry), credentialsRegistry);
+        return new RestContext(readers, converters, writers, restCallFactory,
+                new StaticRestResourceRegistry(alias, resource, this.restResourceRegistry), credentialsRegistry,
+                authenticator, acceptedEncodings, asyncExecutor);
+    }
+
+    /** Register all of these aliases in one step; much cheaper than registering them one by one. */
+    public RestContext registerAll(Map<String, UriTemplate> uris) {
+        Map<String, RestResource> resources = new LinkedHashMap<>();
+        uris.forEach((alias, uri) -> resources.put(alias, createResource(uri)));
+        return new RestContext(readers, converters, writers, restCallFactory,
+                new StaticRestResourceRegistry(resources, this.restResourceRegistry), credentialsRegistry,
+                authenticator, acceptedEncodings, asyncExecutor);
     }
 
     public RestResource resource(String alias, String... path) {
@@ -250,8 +354,28 @@ public class RestContext {
 
 
     public RestContext register(URI uri, Credentials credentials) {
-        return new RestContext(readers, restCallFactory, restResourceRegistry,
-                new StaticCredentialsRegistry(uri, credentials, credentialsRegistry));
+        return new RestContext(readers, converters, writers, restCallFactory, restResourceRegistry,
+                new StaticCredentialsRegistry(uri, credentials, credentialsRegistry), authenticator,
+                acceptedEncodings, asyncExecutor);
+    }
+
+    /** Use this authenticator before the ones already registered */
+    public RestContext register(@NonNull Authenticator authenticator) {
+        return new RestContext(readers, converters, writers, restCallFactory, restResourceRegistry,
+                credentialsRegistry, (this.authenticator == null) ? authenticator
+                        : CombinedAuthenticator.combine(authenticator, this.authenticator), acceptedEncodings,
+                asyncExecutor);
+    }
+
+    /**
+     * The server responded with <code>401 Unauthorized</code> to a request with these headers: may it succeed, if it's
+     * repeated with new authorization headers?
+     */
+    boolean reauthenticate(URI uri, Headers requestHeaders) {
+        if (authenticator == null)
+            return false;
+        Header authorization = requestHeaders.firstHeader(AUTHORIZATION);
+        return authorization != null && authenticator.rejected(uri, authorization);
     }
 
     public Credentials getCredentials(URI uri) {
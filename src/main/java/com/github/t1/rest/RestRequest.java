@@ -1,27 +1,39 @@
 package com.github.t1.rest;
 
+import com.github.t1.rest.fallback.JsonMessageBodyReader;
 import lombok.*;
 
 import javax.annotation.concurrent.Immutable;
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
+import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
 
 /**
- * A {@link RestResource} plus the {@link Headers} to be sent.
+ * A {@link RestResource} plus the {@link Headers} and the optional {@link RequestEntity body} to be sent.
  */
 @Immutable
 @Value
+@AllArgsConstructor
 public class RestRequest<T> {
     @NonNull
     RestResource resource;
     @NonNull
     Headers headers;
     ResponseConverter<T> converter;
+    /** <code>null</code> if there is no body to send */
+    RequestEntity body;
+
+    public RestRequest(RestResource resource, Headers headers, ResponseConverter<T> converter) {
+        this(resource, headers, converter, null);
+    }
 
     @Override
     public String toString() {
@@ -42,20 +54,51 @@ public class RestRequest<T> {
 
 
     public RestRequest<T> basicAuth(Credentials credentials) {
-        return new RestRequest<>(resource, headers.basicAuth(credentials), converter);
+        return new RestRequest<>(resource, headers.basicAuth(credentials), converter, body);
     }
 
     public RestRequest<T> header(String name, Object value) {
-        return new RestRequest<>(resource, headers.header(name, value), converter);
+        return new RestRequest<>(resource, headers.header(name, value), converter, body);
     }
 
     public RestRequest<T> with(String name, String value) {
-        return new RestRequest<>(resource.with(name, value), headers.with(name, value), converter);
+        return new RestRequest<>(resource.with(name, value), headers.with(name, value), converter, body);
     }
 
+    /**
+     * Don't buffer the body of the response, but read it directly from the connection when it's converted, i.e. it can
+     * be read only once. You should {@link EntityResponse#close() close} the response, if you don't read the body.
+     * Requests for an {@link java.io.InputStream} are always streaming.
+     */
+    public RestRequest<T> streaming() {
+        if (converter == null)
+            throw new IllegalStateException("accept a type before streaming " + this);
+        return new RestRequest<>(resource, headers, converter.streaming(true), body);
+    }
+
+
+    /**
+     * Send this body with the content type that the first {@link javax.ws.rs.ext.MessageBodyWriter writer} for its
+     * type produces by default, e.g. <code>application/json</code> for a pojo or <code>text/plain</code> for a String.
+     * An {@link InputStream} body can be sent only once, i.e. the request can't be repeated, e.g. for a new token.
+     */
+    public RestRequest<T> body(Object value) {
+        return body(null, value);
+    }
+
+    /** Send this body with this content type; see {@link #body(Object)} */
+    public RestRequest<T> body(MediaType contentType, Object value) {
+        return new RestRequest<>(resource, headers, converter, context().requestEntity(value, contentType));
+    }
+
+
+    /** The body is read exactly once, so it can be parsed directly from the connection, without buffering it. */
+    private RestRequest<T> readOnce() {
+        return (converter == null || converter.streaming()) ? this : streaming();
+    }
 
     public T GET() {
-        return GET_Response().expecting(OK).getBody();
+        return readOnce().GET_Response().expecting(OK).getBody();
     }
 
     public <U> U GET(Class<U> type) {
@@ -66,20 +109,83 @@ public class RestRequest<T> {
      * Execute a GET and return the {@link EntityResponse response object}. This method name is better than getResponse
      * (as it indicates that a GET is executed), and anything else I could think of.
      */
-    public EntityResponse<T> GET_Response() { return createRestCall(GET.class).execute(); }
+    public EntityResponse<T> GET_Response() { return execute(GET.class); }
+
+    /**
+     * Execute a GET for a JSON array and bind the elements one by one while they are read from the connection, so even
+     * huge arrays don't have to fit into memory. The connection is released when the last element is read; if you stop
+     * earlier, you must {@link Stream#close() close} the stream, e.g. with a try-with-resources.
+     */
+    public <E> Stream<E> GET_Stream(Class<E> elementType) {
+        RestRequest<InputStream> request = new RestRequest<>(resource, headers.accept(APPLICATION_JSON_TYPE),
+                context().converterFor(InputStream.class));
+        InputStream body = request.GET_Response().expecting(OK).getBody();
+        return JsonMessageBodyReader.readElements(body, elementType);
+    }
+
+    /** Execute a GET without blocking the calling thread; converts and times out like {@link #GET_Response()} */
+    public CompletableFuture<EntityResponse<T>> GET_Async() { return executeAsync(GET.class); }
 
     public T POST() {
-        return POST_Response().expecting(OK).getBody();
+        return readOnce().POST_Response().expecting(OK).getBody();
     }
 
     /**
      * Execute a POST and return the {@link EntityResponse response object}. This method name is better than postResponse
      * (as it indicates that a POST is executed), and anything else I could think of.
      */
-    public EntityResponse<T> POST_Response() { return createRestCall(POST.class).execute(); }
+    public EntityResponse<T> POST_Response() { return execute(POST.class); }
+
+    /** Execute a POST without blocking the calling thread; converts and times out like {@link #POST_Response()} */
+    public CompletableFuture<EntityResponse<T>> POST_Async() { return executeAsync(POST.class); }
+
+    public T PUT() {
+        return readOnce().PUT_Response().expecting(OK).getBody();
+    }
+
+    /** Execute a PUT and return the {@link EntityResponse response object}; like {@link #POST_Response()} */
+    public EntityResponse<T> PUT_Response() { return execute(PUT.class); }
+
+    /** Execute a PUT without blocking the calling thread; converts and times out like {@link #PUT_Response()} */
+    public CompletableFuture<EntityResponse<T>> PUT_Async() { return executeAsync(PUT.class); }
+
+    /**
+     * Repeats the call once, if it was rejected as unauthorized and the {@link Authenticator} has a new authorization;
+     * but not if the body can't be sent again, e.g. an {@link InputStream}: then the unauthorized response is returned.
+     */
+    private EntityResponse<T> execute(Class<? extends Annotation> method) {
+        EntityRestCall<T> call = createRestCall(method);
+        EntityResponse<T> response = call.execute();
+        if (!reauthenticate(call, response))
+            return response;
+        response.close();
+        return createRestCall(method).execute();
+    }
+
+    /** Creating the call may block, e.g. when an {@link Authenticator} fetches a token, so it's part of the chain */
+    private CompletableFuture<EntityResponse<T>> executeAsync(Class<? extends Annotation> method) {
+        return CompletableFuture.supplyAsync(() -> createRestCall(method), context().asyncExecutor())
+                .thenCompose(call -> call.executeAsync().thenCompose(response -> {
+                    if (!reauthenticate(call, response))
+                        return CompletableFuture.completedFuture(response);
+                    response.close();
+                    return createRestCall(method).executeAsync();
+                }));
+    }
+
+    private boolean reauthenticate(EntityRestCall<T> call, EntityResponse<T> response) {
+        return response.status().getStatusCode() == UNAUTHORIZED.getStatusCode()
+                && (body == null || body.isRepeatable())
+                && context().reauthenticate(call.uri(), call.requestHeaders());
+    }
 
     public EntityRestCall<T> createRestCall(Class<? extends Annotation> method) {
-        return context().createRestCall(method, uri(), headers, acceptedType(), genericType());
+        EntityRestCall<T> call = (converter == null)
+                ? context().createRestCall(method, uri(), headers, acceptedType(), genericType())
+                : context().createRestCall(method, uri(), headers, converter);
+        if (body != null)
+            call.body(body.httpEntity());
+        return call;
     }
 
     public Class<T> acceptedType() { return (converter == null) ? null : converter.acceptedType(); }
@@ -111,6 +217,6 @@ public class RestRequest<T> {
     }
 
     private <U> RestRequest<U> entityRequest(ResponseConverter<U> converter) {
-        return new RestRequest<>(resource, headers.accept(converter.mediaTypes()), converter);
+        return new RestRequest<>(resource, headers.accept(converter.mediaTypes()), converter, body);
     }
 }
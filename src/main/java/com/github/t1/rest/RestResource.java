@@ -6,6 +6,7 @@ import javax.annotation.concurrent.Immutable;
 import javax.ws.rs.core.MediaType;
 import java.net.URI;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.github.t1.rest.RestContext.*;
 import static java.util.Arrays.*;
@@ -114,6 +115,11 @@ public class RestResource {
         return accept(acceptedType).GET();
     }
 
+    /** Execute a http GET for a JSON array and {@link RestRequest#GET_Stream(Class) stream} its elements */
+    public <T> Stream<T> GET_Stream(Class<T> elementType) {
+        return request().GET_Stream(elementType);
+    }
+
     public EntityResponse<Object> GET_Response() {
         return accept(Object.class).GET_Response();
     }
@@ -126,16 +132,29 @@ public class RestResource {
         return accept(acceptedType).GET_Response();
     }
 
-    public RestResponse PUT(Object value) {
-        return null;
+    /** Execute a http PUT with this body, sent with the default content type for its type */
+    public EntityResponse<Object> PUT(Object value) {
+        return accept(Object.class).body(value).PUT_Response();
+    }
+
+    /** Execute a http PUT with this body, sent with this content type */
+    public EntityResponse<Object> PUT(MediaType type, Object value) {
+        return accept(Object.class).body(type, value).PUT_Response();
     }
 
-    public RestResponse PUT(MediaType type, Object value) {
-        return null;
+    /** Execute a http POST without a body */
+    public EntityResponse<Object> POST() { return POST_Response(); }
+
+    /** Execute a http POST with this body, sent with the default content type for its type */
+    public EntityResponse<Object> POST(Object value) {
+        return accept(Object.class).body(value).POST_Response();
+    }
+
+    /** Start a request with this body; see {@link RestRequest#body(Object)} */
+    public RestRequest<Void> body(Object value) {
+        return request().body(value);
     }
 
     @Override
     public String toString() { return uri.toString(); }
-
-    public EntityResponse POST() { return null; }
 }
@@ -6,16 +6,31 @@ import java.util.*;
 import javax.annotation.concurrent.Immutable;
 
 import lombok.*;
+import lombok.experimental.NonFinal;
 
+import static java.util.Locale.*;
+import static lombok.AccessLevel.*;
+
+/**
+ * Immutable registry of credentials by uri. Adding credentials shares the existing registry as the tail, so it's
+ * cheap; on the first lookup, the uris of all static registries in the chain are collected into a trie of the scheme
+ * and authority and then the path segments, so the most specific credentials are found in one pass, and uris with
+ * other authorities are rejected right away.
+ */
 @Immutable
 @Value
-@EqualsAndHashCode(callSuper = false)
+@EqualsAndHashCode(callSuper = false, exclude = "index")
+@ToString(exclude = "index")
 public class StaticCredentialsRegistry extends CredentialsRegistry {
     @NonNull
     URI uri;
     @NonNull
     Credentials resource;
     CredentialsRegistry tail;
+    /** lazily built from this and all static tails */
+    @NonFinal
+    @Getter(NONE)
+    volatile Index index;
 
     public StaticCredentialsRegistry(URI uri, Credentials resource) {
         this(uri, resource, null);
@@ -27,11 +42,105 @@ public class StaticCredentialsRegistry extends CredentialsRegistry {
         this.tail = tail;
     }
 
+    /** the path segments of one authority */
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        /** for the path to this node */
+        private Credentials credentials;
+        /** for the path to this node with a trailing slash */
+        private Credentials withSlash;
+    }
+
+    private static class Index {
+        private final Map<URI, Credentials> uris = new HashMap<>();
+        private final Map<String, Node> authorities = new HashMap<>();
+        /** can't be looked up in the trie, i.e. it's opaque or has a query or fragment */
+        private boolean special;
+        /** the first tail that is not static */
+        private CredentialsRegistry fallback;
+
+        private void add(URI uri, Credentials credentials) {
+            if (uris.putIfAbsent(uri, credentials) != null)
+                return; // the later registrations win
+            if (uri.isOpaque() || uri.getRawQuery() != null || uri.getRawFragment() != null) {
+                special = true;
+                return;
+            }
+            Node node = authorities.computeIfAbsent(authority(uri), key -> new Node());
+            String path = uri.getRawPath();
+            int start = path.startsWith("/") ? 1 : 0;
+            boolean slash = false;
+            while (start < path.length()) {
+                int end = path.indexOf('/', start);
+                if (end < 0)
+                    end = path.length();
+                node = node.children.computeIfAbsent(path.substring(start, end), key -> new Node());
+                slash = end < path.length();
+                start = end + 1;
+            }
+            if (slash || path.equals("/"))
+                node.withSlash = credentials;
+            else
+                node.credentials = credentials;
+        }
+    }
+
+    private static String authority(URI uri) {
+        return (uri.getScheme() + "://" + uri.getRawAuthority()).toLowerCase(ROOT);
+    }
+
+    private Index index() {
+        Index result = index;
+        if (result == null) {
+            result = new Index();
+            StaticCredentialsRegistry node = this;
+            while (true) {
+                result.add(node.uri, node.resource);
+                if (!(node.tail instanceof StaticCredentialsRegistry))
+                    break;
+                node = (StaticCredentialsRegistry) node.tail;
+            }
+            if (node.tail != null && !node.tail.uris().isEmpty())
+                result.fallback = node.tail;
+            index = result; // racy, but idempotent
+        }
+        return result;
+    }
+
     @Override
     public Credentials get(URI uri) {
-        if (this.uri.equals(uri))
-            return resource;
-        return (tail == null) ? null : tail.get(uri);
+        Index index = index();
+        Credentials result = index.uris.get(uri);
+        if (result == null && index.fallback != null)
+            result = index.fallback.get(uri);
+        return result;
+    }
+
+    @Override
+    public Credentials lookup(URI uri) {
+        Index index = index();
+        if (index.special || index.fallback != null || uri.isOpaque())
+            return super.lookup(uri);
+        Node node = index.authorities.get(authority(uri));
+        if (node == null)
+            return null;
+        String path = uri.getRawPath();
+        Credentials result = node.credentials;
+        int start = path.startsWith("/") ? 1 : 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = path.length();
+            node = node.children.get(path.substring(start, end));
+            if (node == null)
+                return result;
+            if (node.credentials != null)
+                result = node.credentials;
+            start = end + 1;
+        }
+        if (path.endsWith("/") && node.withSlash != null)
+            return node.withSlash;
+        return result;
     }
 
     public StaticCredentialsRegistry and(URI uri, Credentials credentials) {
@@ -6,35 +6,108 @@ import javax.annotation.concurrent.Immutable;
 
 import lombok.*;
 
+/**
+ * Immutable registry of resources by alias. Adding aliases shares the existing registry as the tail, so it's cheap;
+ * the aliases of all static registries in the chain are collected into a hash index on the first lookup, so resolving
+ * an alias doesn't depend on the number of registered aliases.
+ */
 @Immutable
-@Value
+@EqualsAndHashCode(exclude = "index")
 public class StaticRestResourceRegistry implements RestResourceRegistry {
-    @NonNull
-    String alias;
-    @NonNull
-    RestResource resource;
-    RestResourceRegistry tail;
+    /** the resources added by this node, in the order they were added */
+    private final Map<String, RestResource> resources;
+    private final RestResourceRegistry tail;
+    /** lazily built from this and all static tails */
+    private volatile Index index;
+
+    @Value
+    private static class Index {
+        Map<String, RestResource> resources;
+        /** the first tail that is not static */
+        RestResourceRegistry fallback;
+    }
 
     public StaticRestResourceRegistry(String alias, RestResource resource) {
         this(alias, resource, null);
     }
 
-    public StaticRestResourceRegistry(String alias, RestResource resource, RestResourceRegistry tail) {
-        this.alias = alias;
-        this.resource = resource;
+    public StaticRestResourceRegistry(@NonNull String alias, @NonNull RestResource resource, RestResourceRegistry tail) {
+        this(Collections.singletonMap(alias, resource), tail);
+    }
+
+    /** bulk registration: one node for all of these resources */
+    public StaticRestResourceRegistry(Map<String, RestResource> resources, RestResourceRegistry tail) {
+        Map<String, RestResource> copy = new LinkedHashMap<>();
+        resources.forEach((alias, resource) -> copy.put(
+                Objects.requireNonNull(alias, "alias"), Objects.requireNonNull(resource, "resource for " + alias)));
+        this.resources = Collections.unmodifiableMap(copy);
         this.tail = tail;
     }
 
+    /** The alias of a node with a single resource, i.e. not added in bulk */
+    public String alias() {
+        return single().getKey();
+    }
+
+    /** The resource of a node with a single resource, i.e. not added in bulk */
+    public RestResource resource() {
+        return single().getValue();
+    }
+
+    private Map.Entry<String, RestResource> single() {
+        if (resources.size() != 1)
+            throw new IllegalStateException("not a single resource but " + resources.size() + ": " + resources.keySet());
+        return resources.entrySet().iterator().next();
+    }
+
+    /** The resources added by this node, in the order they were added */
+    public Map<String, RestResource> resources() {
+        return resources;
+    }
+
+    /** The registry this node was added to; <code>null</code> for the first node */
+    public RestResourceRegistry tail() {
+        return tail;
+    }
+
     @Override
     public RestResource get(String alias) {
-        if (this.alias.equals(alias))
-            return resource;
-        return (tail == null) ? null : tail.get(alias);
+        Index index = index();
+        RestResource resource = index.resources.get(alias);
+        if (resource == null && index.fallback != null)
+            resource = index.fallback.get(alias);
+        return resource;
+    }
+
+    private Index index() {
+        Index result = index;
+        if (result == null) {
+            Map<String, RestResource> resources = new HashMap<>();
+            StaticRestResourceRegistry node = this;
+            while (true) {
+                node.resources.forEach(resources::putIfAbsent); // the later registrations win
+                if (!(node.tail instanceof StaticRestResourceRegistry))
+                    break;
+                node = (StaticRestResourceRegistry) node.tail;
+            }
+            index = result = new Index(resources, node.tail); // racy, but idempotent
+        }
+        return result;
     }
 
     @Override
     public List<String> names() {
-        return Collections.singletonList(alias);
+        Set<String> names = new LinkedHashSet<>();
+        StaticRestResourceRegistry node = this;
+        while (true) {
+            names.addAll(node.resources.keySet());
+            if (!(node.tail instanceof StaticRestResourceRegistry))
+                break;
+            node = (StaticRestResourceRegistry) node.tail;
+        }
+        if (node.tail != null)
+            names.addAll(node.tail.names());
+        return new ArrayList<>(names);
     }
 
     public StaticRestResourceRegistry and(String alias, String uri) {
@@ -48,4 +121,15 @@ public class StaticRestResourceRegistry implements RestResourceRegistry {
     public StaticRestResourceRegistry and(String alias, RestResource resource) {
         return new StaticRestResourceRegistry(alias, resource, this);
     }
+
+    public StaticRestResourceRegistry andAll(Map<String, RestResource> resources) {
+        return new StaticRestResourceRegistry(resources, this);
+    }
+
+    @Override
+    public String toString() {
+        return "StaticRestResourceRegistry(" + ((resources.size() == 1)
+                ? "alias=" + alias() + ", resource=" + resource()
+                : "resources=" + resources) + ", tail=" + tail + ")";
+    }
 }
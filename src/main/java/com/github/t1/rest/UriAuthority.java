@@ -54,7 +54,6 @@ public abstract class UriAuthority extends NonPath {
 
     @Immutable
     @Getter
-    @EqualsAndHashCode(callSuper = true)
     public static class RegistryBasedAuthority extends UriAuthority {
         private final String registryName;
 
@@ -64,7 +63,7 @@ public abstract class UriAuthority extends NonPath {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + "//" + registryName;
         }
 
@@ -82,7 +81,6 @@ public abstract class UriAuthority extends NonPath {
 
     @Immutable
     @Getter
-    @EqualsAndHashCode(callSuper = true)
     public static class HostBasedAuthority extends UriAuthority {
         private final String userInfo;
         private final String host;
@@ -111,7 +109,7 @@ public abstract class UriAuthority extends NonPath {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + "//" + get();
         }
 
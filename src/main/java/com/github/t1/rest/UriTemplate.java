@@ -17,6 +17,7 @@ import java.util.regex.*;
 import static com.github.t1.rest.MethodExtensions.*;
 import static com.github.t1.rest.PathVariableExpression.*;
 import static java.util.Arrays.*;
+import static java.util.Collections.*;
 import static lombok.AccessLevel.*;
 
 /** Immutable, fluent, strictly appendable builder for URI templates. */
@@ -70,7 +71,6 @@ public abstract class UriTemplate {
     }
 
     @Immutable
-    @EqualsAndHashCode(callSuper = true)
     public static class UriScheme extends NonAuthority {
         public static UriScheme of(URI uri) {
             return of(uri.getScheme());
@@ -96,7 +96,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return (scheme == null) ? "" : scheme + ":";
         }
 
@@ -253,7 +253,7 @@ public abstract class UriTemplate {
         private final String path;
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + path;
         }
 
@@ -270,7 +270,6 @@ public abstract class UriTemplate {
     }
 
     @Immutable
-    @EqualsAndHashCode(callSuper = true)
     public static class AbsolutePath extends UriPath {
         private final String path;
 
@@ -285,7 +284,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + "/" + path;
         }
 
@@ -302,7 +301,6 @@ public abstract class UriTemplate {
     }
 
     @Immutable
-    @EqualsAndHashCode(callSuper = true)
     public static class PathElement extends UriPath {
         private final String path;
 
@@ -317,7 +315,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + "/" + path;
         }
 
@@ -333,7 +331,6 @@ public abstract class UriTemplate {
     }
 
     @Immutable
-    @EqualsAndHashCode(callSuper = true)
     public static class MatrixPath extends UriPath {
         private final String key;
         private final String value;
@@ -345,7 +342,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + ";" + key + ((value == null) ? "" : ("=" + value));
         }
 
@@ -386,7 +383,6 @@ public abstract class UriTemplate {
     }
 
     @Immutable
-    @EqualsAndHashCode(callSuper = true)
     public static class Query extends NonFragment {
         private Query(UriTemplate before, String keyValue) {
             this(before, key(keyValue), value(keyValue));
@@ -429,7 +425,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + (first() ? "?" : "&") + key + "=" + value;
         }
 
@@ -469,7 +465,7 @@ public abstract class UriTemplate {
         }
 
         @Override
-        public String toString() {
+        protected String render() {
             return previous + "#" + fragment;
         }
 
@@ -478,11 +474,6 @@ public abstract class UriTemplate {
             return fragment;
         }
 
-        @Override
-        public String schemeSpecificPart() {
-            return previous.schemeSpecificPart();
-        }
-
         @Override
         public Fragment with(String name, Object value) {
             return new Fragment(previous.with(name, value), replaceVariable(fragment, name, value));
@@ -491,8 +482,52 @@ public abstract class UriTemplate {
 
     protected final UriTemplate previous;
 
+    // the parts are immutable, so these are computed lazily and racy, just like String#hashCode
+    private String string;
+    private int hash;
+    private URI uri;
+    private Components components;
+    private List<String> variables;
+
+    /** the components of the complete uri */
+    @Value
+    private static class Components {
+        String scheme;
+        String schemeSpecificPart;
+        boolean opaque;
+        String authority;
+        String userInfo;
+        String host;
+        String port;
+        String path;
+        String query;
+        String fragment;
+
+        Components(UriTemplate template) {
+            this.scheme = template.findPartString(UriScheme.class);
+            UriTemplate nonFragment = (template instanceof Fragment) ? template.previous : template;
+            this.schemeSpecificPart = nonFragment.toString().substring((scheme == null) ? 0 : scheme.length() + 1);
+            this.opaque = scheme != null && (schemeSpecificPart.isEmpty() || !schemeSpecificPart.startsWith("/"));
+            this.authority = template.findPartString(UriAuthority.class);
+            HostBasedAuthority hostBased = template.findPart(HostBasedAuthority.class);
+            this.userInfo = (hostBased == null) ? null : hostBased.userInfo();
+            this.host = (hostBased == null) ? null : hostBased.host();
+            this.port = (hostBased == null) ? null : hostBased.port();
+            this.path = opaque ? null : or(template.findPartString(UriPath.class), "");
+            this.query = opaque ? null : template.findPartString(Query.class);
+            this.fragment = template.findPartString(Fragment.class);
+        }
+    }
+
+    private Components components() {
+        Components result = components;
+        if (result == null)
+            components = result = new Components(this);
+        return result;
+    }
+
     public boolean isOpaque() {
-        return isAbsolute() && (schemeSpecificPart().isEmpty() || !schemeSpecificPart().startsWith("/"));
+        return components().opaque;
     }
 
     public boolean isHierarchical() {
@@ -544,70 +579,97 @@ public abstract class UriTemplate {
     }
 
     public String scheme() {
-        return findPartString(UriScheme.class);
+        return components().scheme;
     }
 
     public String schemeSpecificPart() {
-        int start = isRelative() ? 0 : scheme().length() + 1;
-        return toString().substring(start);
+        return components().schemeSpecificPart;
     }
 
     public String authority() {
-        return findPartString(UriAuthority.class);
+        return components().authority;
     }
 
     public String userInfo() {
-        HostBasedAuthority authority = findPart(HostBasedAuthority.class);
-        return (authority == null) ? null : authority.userInfo();
+        return components().userInfo;
     }
 
     public String host() {
-        HostBasedAuthority authority = findPart(HostBasedAuthority.class);
-        return (authority == null) ? null : authority.host();
+        return components().host;
     }
 
     public String port() {
-        HostBasedAuthority authority = findPart(HostBasedAuthority.class);
-        return (authority == null) ? null : authority.port();
+        return components().port;
     }
 
     public String path() {
-        return isOpaque() ? null : or(findPartString(UriPath.class), "");
+        return components().path;
     }
 
     public String query() {
-        return isOpaque() ? null : findPartString(Query.class);
+        return components().query;
     }
 
     public String fragment() {
-        return findPartString(Fragment.class);
+        return components().fragment;
     }
 
     public abstract UriTemplate with(String name, Object value);
 
+    /** Prepare this template for being {@link CompiledUriTemplate#expand(Object...) expanded} repeatedly. */
+    public CompiledUriTemplate compile() {
+        return new CompiledUriTemplate(this);
+    }
+
+    /** the names of the variables that are not resolved yet, in the order of their occurrence */
     public List<String> variables() {
-        return PathVariableExpression.variables(toString());
+        List<String> result = variables;
+        if (result == null)
+            variables = result = unmodifiableList(PathVariableExpression.variables(toString()));
+        return result;
+    }
+
+    /** Are there any variables left to be resolved? This is cheap enough to be checked for every request. */
+    public boolean hasVariables() {
+        List<String> result = variables;
+        return (result == null) ? PathVariableExpression.hasVariables(toString()) : !result.isEmpty();
     }
 
     /** the string version of this part; for the complete uri, call {@link #toString()} or {@link #toUri()}. */
     public abstract String get();
 
     public URI toUri() {
-        return URI.create(toString());
+        URI result = uri;
+        if (result == null)
+            uri = result = URI.create(toString());
+        return result;
     }
 
+    /** the complete uri up to and including this part */
+    protected abstract String render();
+
     @Override
-    public abstract String toString();
+    public final String toString() {
+        String result = string;
+        if (result == null)
+            string = result = render();
+        return result;
+    }
 
     @Override
-    public boolean equals(Object obj) {
+    public final boolean equals(Object obj) {
+        if (this == obj)
+            return true;
         if (!(obj instanceof UriTemplate))
             return false;
-        return toString().equals(obj.toString());
+        return hashCode() == obj.hashCode() && toString().equals(obj.toString());
     }
 
     @Override
-    public int hashCode() {
-        return toString().hashCode();
+    public final int hashCode() {
+        int result = hash;
+        if (result == 0)
+            hash = result = toString().hashCode();
+        return result;
     }
 }
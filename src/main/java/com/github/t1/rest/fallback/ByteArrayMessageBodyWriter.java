@@ -0,0 +1,33 @@
+package com.github.t1.rest.fallback;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+@Alternative
+@Produces({ APPLICATION_OCTET_STREAM, WILDCARD })
+public class ByteArrayMessageBodyWriter implements MessageBodyWriter<byte[]> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return byte[].class.isAssignableFrom(type);
+    }
+
+    /** the length is known, so the body doesn't have to be chunked */
+    @Override
+    public long getSize(byte[] t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return t.length;
+    }
+
+    @Override
+    public void writeTo(byte[] t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        entityStream.write(t);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.t1.rest.fallback;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.*;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import lombok.SneakyThrows;
+
+/**
+ * Writes a {@link MultivaluedMap} of strings as <code>application/x-www-form-urlencoded</code>; also the
+ * <code>Form</code> of JAX-RS 2.0, but only by reflection, so this works with JAX-RS 1.1.
+ */
+@Alternative
+@Produces(APPLICATION_FORM_URLENCODED)
+public class FormMessageBodyWriter implements MessageBodyWriter<Object> {
+    private static final String JAX_RS_2_FORM = "javax.ws.rs.core.Form";
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return (isForm(type) || MultivaluedMap.class.isAssignableFrom(type))
+                && (mediaType == null || mediaType.isCompatible(APPLICATION_FORM_URLENCODED_TYPE));
+    }
+
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        Charset charset = ConverterTools.getCharset(mediaType);
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, ? extends List<?>> field : fields(t).entrySet())
+            for (Object value : field.getValue()) {
+                if (out.length() > 0)
+                    out.append('&');
+                out.append(URLEncoder.encode(field.getKey(), charset.name()))
+                        .append('=').append(URLEncoder.encode(String.valueOf(value), charset.name()));
+            }
+        entityStream.write(out.toString().getBytes(charset));
+    }
+
+    private static boolean isForm(Class<?> type) {
+        return type.getName().equals(JAX_RS_2_FORM);
+    }
+
+    @SneakyThrows(ReflectiveOperationException.class)
+    @SuppressWarnings("unchecked")
+    private static Map<String, ? extends List<?>> fields(Object t) {
+        if (isForm(t.getClass()))
+            return (Map<String, ? extends List<?>>) t.getClass().getMethod("asMap").invoke(t);
+        return (MultivaluedMap<String, ?>) t;
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.t1.rest.fallback;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+/** Copies the stream to the connection, so it can be sent only once; it's closed when it has been written */
+@Alternative
+@Produces({ APPLICATION_OCTET_STREAM, WILDCARD })
+public class InputStreamMessageBodyWriter implements MessageBodyWriter<InputStream> {
+    private static final int BUFFER_SIZE = 8192;
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return InputStream.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(InputStream t, Class<?> type, Type genericType, Annotation[] annotations,
+            MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(InputStream t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        try (InputStream in = t) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (true) {
+                int read = in.read(buffer);
+                if (read < 0)
+                    break;
+                entityStream.write(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.github.t1.rest.fallback;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.*;
+import lombok.SneakyThrows;
 
 import javax.enterprise.inject.Alternative;
 import javax.ws.rs.Consumes;
@@ -9,9 +11,15 @@ import javax.ws.rs.ext.MessageBodyReader;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.*;
 
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.*;
+import static com.fasterxml.jackson.core.JsonToken.*;
 import static com.fasterxml.jackson.databind.DeserializationFeature.*;
+import static java.util.Spliterator.*;
+import static java.util.Spliterators.*;
 import static javax.ws.rs.core.MediaType.*;
 
 @Alternative
@@ -22,6 +30,78 @@ public class JsonMessageBodyReader implements MessageBodyReader<Object> {
             .configure(FAIL_ON_UNKNOWN_PROPERTIES, false) //
             .findAndRegisterModules();
 
+    /** readers are immutable and much cheaper to reuse than to look up the deserializers every time */
+    private static final Map<Type, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private static ObjectReader reader(Type type) {
+        ObjectReader reader = READERS.get(type);
+        if (reader == null)
+            reader = READERS.computeIfAbsent(type, k -> MAPPER.readerFor(MAPPER.constructType(k)));
+        return reader;
+    }
+
+    /**
+     * Bind the elements of a JSON array one at a time, while they are read from the stream, so the complete array is
+     * never held in memory. The stream is closed when the last element is read, or when the result is closed.
+     */
+    public static <T> Stream<T> readElements(InputStream entityStream, Class<T> elementType) {
+        JsonArrayIterator<T> iterator = new JsonArrayIterator<>(entityStream, reader(elementType));
+        return StreamSupport.stream(spliteratorUnknownSize(iterator, ORDERED), false)
+                .onClose(iterator::close);
+    }
+
+    private static class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+        private final JsonParser parser;
+        private final ObjectReader reader;
+        private boolean hasNext;
+
+        @SneakyThrows(IOException.class)
+        private JsonArrayIterator(InputStream entityStream, ObjectReader reader) {
+            this.parser = MAPPER.getFactory().createParser(entityStream);
+            this.reader = reader;
+            try {
+                if (parser.nextToken() != START_ARRAY)
+                    throw new IllegalArgumentException("expected a JSON array but found " + parser.currentToken());
+                advance();
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private void advance() throws IOException {
+            hasNext = parser.nextToken() != END_ARRAY;
+            if (!hasNext)
+                close();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext)
+                throw new NoSuchElementException();
+            try {
+                T element = reader.readValue(parser);
+                advance();
+                return element;
+            } catch (IOException e) {
+                close();
+                throw new RuntimeException("can't read: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        @SneakyThrows(IOException.class)
+        public void close() {
+            hasNext = false;
+            parser.close();
+        }
+    }
+
     @Override
     public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
         return ConverterTools.isConvertible(type);
@@ -30,7 +110,6 @@ public class JsonMessageBodyReader implements MessageBodyReader<Object> {
     @Override
     public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
             MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
-        JavaType javaType = MAPPER.constructType(genericType);
-        return MAPPER.readValue(entityStream, javaType);
+        return reader((genericType == null) ? type : genericType).readValue(entityStream);
     }
 }
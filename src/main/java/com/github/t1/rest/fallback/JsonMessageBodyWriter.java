@@ -0,0 +1,48 @@
+package com.github.t1.rest.fallback;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.fasterxml.jackson.core.JsonGenerator.Feature.*;
+import static com.github.t1.rest.fallback.JsonMessageBodyReader.*;
+import static javax.ws.rs.core.MediaType.*;
+
+@Alternative
+@Produces(APPLICATION_JSON)
+public class JsonMessageBodyWriter implements MessageBodyWriter<Object> {
+    /** like the readers: immutable and much cheaper to reuse than to look up the serializers every time */
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private static ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = WRITERS.get(type);
+        if (writer == null)
+            writer = WRITERS.computeIfAbsent(type, k -> MAPPER.writerFor(k).without(AUTO_CLOSE_TARGET));
+        return writer;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ConverterTools.isConvertible(type)
+                && (mediaType == null || ConverterTools.isApplicationType(mediaType, "json"));
+    }
+
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        writer(type).writeValue(entityStream, t);
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.t1.rest.fallback;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+/** Writes strings as they are, so they can be sent with any content type */
+@Alternative
+@Produces({ TEXT_PLAIN, WILDCARD })
+public class StringMessageBodyWriter implements MessageBodyWriter<String> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return String.class.isAssignableFrom(type);
+    }
+
+    /** The length of the encoded bytes, so the body is sent with a <code>Content-Length</code>, not chunked */
+    @Override
+    public long getSize(String t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return t.getBytes(ConverterTools.getCharset(mediaType)).length;
+    }
+
+    @Override
+    public void writeTo(String t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) throws IOException {
+        entityStream.write(t.getBytes(ConverterTools.getCharset(mediaType)));
+    }
+}
@@ -5,16 +5,61 @@ import static javax.ws.rs.core.MediaType.*;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
 
 import javax.enterprise.inject.Alternative;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.core.*;
 import javax.ws.rs.ext.MessageBodyReader;
-import javax.xml.bind.JAXB;
+import javax.xml.bind.*;
+import javax.xml.transform.stream.StreamSource;
+
+import lombok.SneakyThrows;
 
 @Alternative
 @Consumes(APPLICATION_XML)
 public class XmlMessageBodyReader implements MessageBodyReader<Object> {
+    /**
+     * Creating a {@link JAXBContext} is by far the most expensive part of unmarshalling, so we keep one per type, and a
+     * pool of the (not thread safe) {@link Unmarshaller}s created from it.
+     */
+    private static final Map<Class<?>, Unmarshallers> UNMARSHALLERS = new ConcurrentHashMap<>();
+
+    private static class Unmarshallers {
+        private final JAXBContext context;
+        private final Queue<Unmarshaller> pool = new ConcurrentLinkedQueue<>();
+
+        @SneakyThrows(JAXBException.class)
+        private Unmarshallers(Class<?> type) {
+            this.context = JAXBContext.newInstance(type);
+        }
+
+        @SneakyThrows(JAXBException.class)
+        private Unmarshaller take() {
+            Unmarshaller unmarshaller = pool.poll();
+            return (unmarshaller == null) ? context.createUnmarshaller() : unmarshaller;
+        }
+
+        private void release(Unmarshaller unmarshaller) {
+            pool.offer(unmarshaller);
+        }
+    }
+
+    private static Unmarshallers unmarshallers(Class<?> type) {
+        Unmarshallers unmarshallers = UNMARSHALLERS.get(type);
+        if (unmarshallers == null)
+            unmarshallers = UNMARSHALLERS.computeIfAbsent(type, Unmarshallers::new);
+        return unmarshallers;
+    }
+
+    /** shared with the {@link XmlMessageBodyWriter} */
+    static JAXBContext context(Class<?> type) {
+        return unmarshallers(type).context;
+    }
+
     @Override
     public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
         return ConverterTools.isConvertible(type);
@@ -23,6 +68,22 @@ public class XmlMessageBodyReader implements MessageBodyReader<Object> {
     @Override
     public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
             MultivaluedMap<String, String> httpHeaders, InputStream entityStream) {
-        return JAXB.unmarshal(new StringReader(ConverterTools.readString(entityStream, mediaType)), type);
+        try {
+            Unmarshallers unmarshallers = unmarshallers(type);
+            Unmarshaller unmarshaller = unmarshallers.take();
+            Object result = unmarshaller.unmarshal(source(entityStream, mediaType), type).getValue();
+            unmarshallers.release(unmarshaller); // not on failure: it may be left in an inconsistent state
+            return result;
+        } catch (JAXBException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    /** without an explicit charset, the xml parser detects the encoding from the byte order mark or xml declaration */
+    private static StreamSource source(InputStream entityStream, MediaType mediaType) {
+        String charset = (mediaType == null) ? null : mediaType.getParameters().get(CHARSET_PARAMETER);
+        if (charset == null)
+            return new StreamSource(entityStream);
+        return new StreamSource(new InputStreamReader(entityStream, Charset.forName(charset)));
     }
 }
@@ -0,0 +1,51 @@
+package com.github.t1.rest.fallback;
+
+import static javax.ws.rs.core.MediaType.*;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.enterprise.inject.Alternative;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.*;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.xml.bind.*;
+import javax.xml.namespace.QName;
+
+/** Shares the {@link JAXBContext}s with the {@link XmlMessageBodyReader}; marshallers are cheap to create from them */
+@Alternative
+@Produces(APPLICATION_XML)
+public class XmlMessageBodyWriter implements MessageBodyWriter<Object> {
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ConverterTools.isConvertible(type)
+                && (mediaType == null || ConverterTools.isApplicationType(mediaType, "xml"));
+    }
+
+    @Override
+    public long getSize(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void writeTo(Object t, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream) {
+        try {
+            JAXBContext context = XmlMessageBodyReader.context(type);
+            Marshaller marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, ConverterTools.getCharset(mediaType).name());
+            Object element = (context.createJAXBIntrospector().isElement(t)) ? t
+                    : new JAXBElement(new QName(inferName(type)), type, t); // like JAXB.marshal
+            marshaller.marshal(element, entityStream);
+        } catch (JAXBException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    private static String inferName(Class<?> type) {
+        String name = type.getSimpleName();
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+}
@@ -2,6 +2,7 @@ package com.github.t1.rest.fallback;
 
 import lombok.SneakyThrows;
 
+import javax.enterprise.inject.Alternative;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.*;
@@ -13,6 +14,7 @@ import java.lang.reflect.Type;
 import static com.github.t1.rest.fallback.YamlMessageBodyReader.*;
 import static javax.ws.rs.core.MediaType.*;
 
+@Alternative
 @Produces(WILDCARD)
 public class YamlMessageBodyWriter implements MessageBodyWriter<Object> {
     @Override
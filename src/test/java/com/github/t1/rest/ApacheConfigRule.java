@@ -31,6 +31,15 @@ public class ApacheConfigRule extends ExternalResource {
 
     static <T> T getInternalHttpClient(Class<T> type, String name) {
         Object internalHttpClient = getField(null, RestCallFactory.class.getName(), "CLIENT");
+        return getInternalField(internalHttpClient, type, name);
+    }
+
+    static <T> T getInternalHttpClient(RestCallFactory factory, Class<T> type, String name) {
+        Object internalHttpClient = getField(factory, RestCallFactory.class.getName(), "client");
+        return getInternalField(internalHttpClient, type, name);
+    }
+
+    private static <T> T getInternalField(Object internalHttpClient, Class<T> type, String name) {
         Object result = getField(internalHttpClient, "org.apache.http.impl.client.InternalHttpClient", name);
         return type.cast(result);
     }
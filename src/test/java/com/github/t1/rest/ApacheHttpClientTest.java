@@ -2,17 +2,28 @@ package com.github.t1.rest;
 
 import ch.qos.logback.classic.*;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.github.t1.rest.fallback.*;
 import io.dropwizard.testing.junit.DropwizardClientRule;
 import lombok.Data;
+import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.junit.*;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
-import java.net.UnknownHostException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import static ch.qos.logback.classic.Level.*;
+import static com.github.t1.rest.ApacheConfigRule.*;
+import static com.github.t1.rest.RestContext.*;
+import static java.util.concurrent.TimeUnit.*;
 import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
 import static org.hamcrest.CoreMatchers.*;
@@ -26,7 +37,11 @@ public class ApacheHttpClientTest {
      */
     private static final boolean EXECUTE_SLOW_TESTS = false;
 
+    /** a deterministic connection failure, without depending on DNS */
+    private static final String UNUSED_PORT = "http://localhost:1";
+
     private static byte[] STREAM;
+    private static final String TEXT = String.join("", Collections.nCopies(1000, "compress me "));
 
     @Data
     public static class Pojo {
@@ -56,6 +71,13 @@ public class ApacheHttpClientTest {
             return "invalid";
         }
 
+        @GET
+        @Path("/text")
+        @Produces(TEXT_PLAIN)
+        public String text() {
+            return TEXT;
+        }
+
         @GET
         @Path("/stream")
         @Produces(APPLICATION_OCTET_STREAM)
@@ -90,7 +112,7 @@ public class ApacheHttpClientTest {
     public void shouldConfigureTimeouts() {
         RequestConfig config = apacheRule.getRequestConfig();
 
-        assertEquals("connection request timeout", 1, config.getConnectionRequestTimeout());
+        assertEquals("connection request timeout", 5000, config.getConnectionRequestTimeout());
         assertEquals("connect timeout", 1000, config.getConnectTimeout());
         assertEquals("socket timeout", 5000, config.getSocketTimeout());
     }
@@ -101,6 +123,39 @@ public class ApacheHttpClientTest {
         new RestResource(service.baseUri() + "/delay").GET(String.class);
     }
 
+    @Test
+    public void shouldDecodeGzippedResponse() {
+        EntityResponse<String> response = REST.createResource(service.baseUri() + "/text").accept(String.class)
+                .GET_Response();
+
+        assertEquals(TEXT, response.getBody());
+        assertNull(response.header("Content-Encoding"));
+        assertEquals(TEXT.length(), response.decompressedSize());
+        assertTrue("compressed", response.compressedSize() > 0 && response.compressedSize() < 1000);
+    }
+
+    @Test
+    public void shouldStreamGzippedResponse() throws Exception {
+        EntityResponse<InputStream> response = REST.createResource(service.baseUri() + "/text")
+                .accept(InputStream.class).GET_Response();
+
+        try (InputStream body = response.getBody()) {
+            assertEquals(TEXT, ConverterTools.readString(body, TEXT_PLAIN_TYPE));
+        }
+        assertEquals(TEXT.length(), response.decompressedSize());
+        assertTrue("compressed", response.compressedSize() < 1000);
+    }
+
+    @Test
+    public void shouldNotAcceptEncodingsWhenDisabled() {
+        EntityResponse<String> response = REST.acceptEncodings().createResource(service.baseUri() + "/text")
+                .accept(String.class).GET_Response();
+
+        assertEquals(TEXT, response.getBody());
+        assertEquals(TEXT.length(), response.compressedSize());
+        assertEquals(TEXT.length(), response.decompressedSize());
+    }
+
     @Test
     public void shouldConfigureConnectionPool() {
         RequestConfig config = apacheRule.getRequestConfig();
@@ -108,13 +163,85 @@ public class ApacheHttpClientTest {
         assertEquals("socket timeout", 5000, config.getSocketTimeout());
     }
 
+    @Test
+    public void shouldConfigureIsolatedConnectionPool() throws Exception {
+        ConnectionPoolConfig pool = ConnectionPoolConfig.DEFAULT
+                .maxTotal(100)
+                .maxPerRoute(10)
+                .maxPerRoute(URI.create("https://example.org/some/path"), 50)
+                .connectionRequestTimeout(500, MILLISECONDS);
+
+        try (RestCallFactory factory = new RestCallFactory(pool)) {
+            PoolingHttpClientConnectionManager connectionManager =
+                    getInternalHttpClient(factory, PoolingHttpClientConnectionManager.class, "connManager");
+            RequestConfig config = getInternalHttpClient(factory, RequestConfig.class, "defaultConfig");
+
+            assertEquals("max total", 100, connectionManager.getMaxTotal());
+            assertEquals("default max per route", 10, connectionManager.getDefaultMaxPerRoute());
+            assertEquals("max per route override", 50, connectionManager.getMaxPerRoute(
+                    new HttpRoute(new HttpHost("example.org", 443, "https"), null, true)));
+            assertEquals("connection request timeout", 500, config.getConnectionRequestTimeout());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectConnectionRequestTimeoutOverflow() {
+        ConnectionPoolConfig.DEFAULT.connectionRequestTimeout(30, DAYS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeValidateAfterInactivity() {
+        ConnectionPoolConfig.DEFAULT.validateAfterInactivity(-1, SECONDS);
+    }
+
+    @Test
+    public void shouldGetAsyncWithIsolatedConnectionPoolEvictingIdleConnections() throws Exception {
+        ConnectionPoolConfig pool = ConnectionPoolConfig.DEFAULT.maxIdleTime(100, MILLISECONDS);
+        try (RestCallFactory factory = new RestCallFactory(pool)) {
+            RestResource resource = REST.restCallFactory(factory).createResource(service.baseUri() + "/pojo");
+
+            assertEquals("invalid", resource.accept(String.class).GET_Async().get(5, SECONDS).getBody());
+            Thread.sleep(300);
+            assertEquals("invalid", resource.accept(String.class).GET_Async().get(5, SECONDS).getBody());
+        }
+    }
+
+    @Test
+    public void shouldGetWithIsolatedConnectionPool() throws Exception {
+        try (RestCallFactory factory = new RestCallFactory(ConnectionPoolConfig.DEFAULT.maxPerRoute(5))) {
+            String get = REST.restCallFactory(factory).createResource(service.baseUri() + "/pojo").GET();
+
+            assertEquals("invalid", get);
+        }
+    }
+
+    @Test
+    public void shouldReleaseConnectionAfterReadingBodyDirectlyFromConnection() throws Exception {
+        try (RestCallFactory factory = new RestCallFactory(ConnectionPoolConfig.DEFAULT.maxTotal(1).maxPerRoute(1))) {
+            RestResource resource = REST.restCallFactory(factory).createResource(service.baseUri() + "/stream");
+
+            for (int i = 0; i < 3; i++)
+                assertEquals(12 * 1024 * 1024, resource.GET(byte[].class).length);
+        }
+    }
+
     @Test
     public void shouldCloseConnectionWhenConnectionFails() {
         try {
-            new RestResource("http://example.nowhere").GET_Response();
+            new RestResource(UNUSED_PORT).GET_Response();
             fail("expected RuntimeException");
         } catch (RuntimeException e) {
-            assertEquals(UnknownHostException.class, e.getCause().getClass());
+            assertThat(e.getCause(), instanceOf(ConnectException.class));
+        }
+    }
+
+    @Test
+    public void shouldFailAsyncWhenConnectionFails() throws Exception {
+        try {
+            new RestResource(UNUSED_PORT).accept(String.class).GET_Async().get(5, SECONDS);
+            fail("expected ExecutionException");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause().getCause(), instanceOf(ConnectException.class));
         }
     }
 
@@ -159,4 +286,75 @@ public class ApacheHttpClientTest {
 
         assertArrayEquals(STREAM, buffer);
     }
+
+    @Test
+    public void shouldStreamBigBody() {
+        @SuppressWarnings("deprecation")
+        RestRequest<byte[]> request = new RestResource(service.baseUri() + "/stream")
+                .accept(byte[].class, APPLICATION_OCTET_STREAM_TYPE)
+                .streaming();
+
+        try (EntityResponse<byte[]> response = request.GET_Response()) {
+            assertTrue(response.isStreaming());
+            assertEquals("connection held by response", 1, apacheRule.getTotalConnections());
+            assertArrayEquals(STREAM, response.getBody());
+            assertEquals("connection released after conversion", 0, apacheRule.getTotalConnections());
+        }
+    }
+
+    @Test
+    public void shouldStreamInputStream() throws Exception {
+        @SuppressWarnings("deprecation")
+        RestRequest<InputStream> request = new RestResource(service.baseUri() + "/stream")
+                .accept(InputStream.class, APPLICATION_OCTET_STREAM_TYPE);
+
+        try (InputStream stream = request.GET()) {
+            assertEquals("connection held by stream", 1, apacheRule.getTotalConnections());
+            assertArrayEquals(STREAM, ByteArrayMessageBodyReader.readAll(stream));
+        }
+    }
+
+    @Test
+    public void shouldReleaseConnectionWhenClosingUnreadStreamingResponse() {
+        @SuppressWarnings("deprecation")
+        EntityResponse<byte[]> response = new RestResource(service.baseUri() + "/stream")
+                .accept(byte[].class, APPLICATION_OCTET_STREAM_TYPE)
+                .streaming()
+                .GET_Response();
+        assertEquals(1, apacheRule.getTotalConnections());
+
+        response.close();
+
+        assertEquals(0, apacheRule.getTotalConnections());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToReadStreamingBodyTwice() {
+        try (EntityResponse<String> response = pojoResource().accept(String.class).streaming().GET_Response()) {
+            assertEquals("invalid", response.getBody());
+            response.getBody();
+        }
+    }
+
+    @Test
+    public void shouldReuseStreamingConverterForRepeatedGet() throws Exception {
+        List<ResponseConverter<?>> converters = new CopyOnWriteArrayList<>();
+        try (RestCallFactory factory = new RestCallFactory() {
+            @Override
+            public <T, M extends Annotation> EntityRestCall<T> createRestCall(Class<M> method, RestContext context,
+                    URI uri, Headers headers, ResponseConverter<T> converter) {
+                converters.add(converter);
+                return super.createRestCall(method, context, uri, headers, converter);
+            }
+        }) {
+            RestResource resource = REST.restCallFactory(factory).createResource(service.baseUri() + "/text");
+
+            assertEquals(TEXT, resource.accept(String.class).GET());
+            assertEquals(TEXT, resource.accept(String.class).GET());
+        }
+
+        assertEquals(2, converters.size());
+        assertTrue(converters.get(0).streaming());
+        assertSame(converters.get(0), converters.get(1));
+    }
 }
@@ -0,0 +1,222 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.BearerTokenAuthenticator.Token;
+import io.dropwizard.testing.junit.DropwizardClientRule;
+import org.junit.*;
+
+import javax.ws.rs.*;
+import javax.ws.rs.core.*;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.t1.rest.RestContext.*;
+import static java.nio.charset.StandardCharsets.*;
+import static javax.ws.rs.core.MediaType.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static org.junit.Assert.*;
+
+public class BearerTokenAuthenticatorTest {
+    private static final AtomicInteger TOKENS = new AtomicInteger();
+    private static volatile String validToken;
+    private static volatile String lastGrant;
+
+    @Path("/")
+    public static class MockService {
+        @POST
+        @Path("/token")
+        @Consumes(APPLICATION_FORM_URLENCODED)
+        @Produces(APPLICATION_JSON)
+        public Map<String, Object> token(@HeaderParam("Authorization") String auth,
+                @FormParam("grant_type") String grantType, @FormParam("scope") String scope) {
+            if (!"Basic Y2xpZW50OnNlY3JldA==".equals(auth))
+                throw new WebApplicationException(UNAUTHORIZED);
+            lastGrant = grantType + " " + scope;
+            validToken = "token-" + TOKENS.incrementAndGet();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("access_token", validToken);
+            response.put("token_type", "Bearer");
+            response.put("expires_in", 3600);
+            return response;
+        }
+
+        @GET
+        @Path("/secure")
+        @Produces(TEXT_PLAIN)
+        public String secure(@HeaderParam("Authorization") String auth) {
+            if (!("Bearer " + validToken).equals(auth))
+                throw new WebApplicationException(UNAUTHORIZED);
+            return "secret";
+        }
+
+        @PUT
+        @Path("/upload")
+        @Consumes(WILDCARD)
+        @Produces(TEXT_PLAIN)
+        public String upload(@HeaderParam("Authorization") String auth, byte[] body) {
+            if (!("Bearer " + validToken).equals(auth))
+                throw new WebApplicationException(UNAUTHORIZED);
+            return body.length + " bytes";
+        }
+    }
+
+    @ClassRule
+    public static final DropwizardClientRule service = new DropwizardClientRule(new MockService());
+
+    @Before
+    public void resetTokens() {
+        TOKENS.set(0);
+        validToken = null;
+    }
+
+    private RestContext authenticated() {
+        ClientCredentialsTokenProvider tokens = new ClientCredentialsTokenProvider(REST,
+                URI.create(service.baseUri() + "/token"), new Credentials("client", "secret")).scope("read");
+        return REST.register(new BearerTokenAuthenticator(tokens, service.baseUri()));
+    }
+
+    private String getSecure(RestContext rest) {
+        return rest.createResource(service.baseUri() + "/secure").GET(String.class);
+    }
+
+    @Test
+    public void shouldFetchTokenOnceAndReuseIt() {
+        RestContext rest = authenticated();
+
+        assertEquals("secret", getSecure(rest));
+        assertEquals("secret", getSecure(rest));
+
+        assertEquals(1, TOKENS.get());
+        assertEquals("client_credentials read", lastGrant);
+    }
+
+    @Test
+    public void shouldRetryOnceWithNewTokenWhenRejected() {
+        RestContext rest = authenticated();
+        getSecure(rest);
+
+        validToken = "revoked";
+
+        assertEquals("secret", getSecure(rest));
+        assertEquals(2, TOKENS.get());
+    }
+
+    @Test
+    public void shouldRetryAsyncWithNewTokenWhenRejected() throws Exception {
+        RestContext rest = authenticated();
+        getSecure(rest);
+
+        validToken = "revoked";
+
+        String body = rest.createResource(service.baseUri() + "/secure").accept(String.class)
+                .GET_Async().get(5, TimeUnit.SECONDS).expecting(OK).getBody();
+        assertEquals("secret", body);
+    }
+
+    @Test
+    public void shouldRetryRepeatableBodyWithNewTokenWhenRejected() {
+        RestContext rest = authenticated();
+        getSecure(rest);
+
+        validToken = "revoked";
+
+        String response = rest.createResource(service.baseUri() + "/upload").accept(String.class).body("data").PUT();
+        assertEquals("4 bytes", response);
+        assertEquals(2, TOKENS.get());
+    }
+
+    @Test
+    public void shouldNotRetryStreamBodyWhenRejected() throws Exception {
+        RestContext rest = authenticated();
+        getSecure(rest);
+
+        validToken = "revoked";
+
+        try (EntityResponse<String> response = streamUpload(rest).PUT_Response()) {
+            assertEquals(UNAUTHORIZED.getStatusCode(), response.status().getStatusCode());
+        }
+        EntityResponse<String> async = streamUpload(rest).PUT_Async().get(5, TimeUnit.SECONDS);
+        assertEquals(UNAUTHORIZED.getStatusCode(), async.status().getStatusCode());
+        assertEquals(1, TOKENS.get());
+    }
+
+    private RestRequest<String> streamUpload(RestContext rest) {
+        return rest.createResource(service.baseUri() + "/upload").accept(String.class)
+                .body(new ByteArrayInputStream("data".getBytes(UTF_8)));
+    }
+
+    @Test
+    public void shouldFetchTokenForAsyncCallWithoutBlockingTheCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RestContext rest = REST.register(new BearerTokenAuthenticator(authority -> {
+            await(release);
+            validToken = "t";
+            return new Token("t", Instant.MAX);
+        }, service.baseUri()));
+
+        CompletableFuture<EntityResponse<String>> future =
+                rest.createResource(service.baseUri() + "/secure").accept(String.class).GET_Async();
+        assertFalse(future.isDone());
+        release.countDown();
+
+        assertEquals("secret", future.get(5, TimeUnit.SECONDS).expecting(OK).getBody());
+    }
+
+    @Test
+    public void shouldNotAuthenticateOtherAuthorities() {
+        BearerTokenAuthenticator authenticator =
+                new BearerTokenAuthenticator(authority -> new Token("t", Instant.MAX), URI.create("http://example.org"));
+
+        assertNull(authenticator.authorization(URI.create("http://example.com/path")));
+        assertEquals("Bearer t", authenticator.authorization(URI.create("HTTP://Example.org/path")).value());
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentRefreshes() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        BearerTokenAuthenticator authenticator = new BearerTokenAuthenticator(authority -> {
+            fetches.incrementAndGet();
+            await(release);
+            return new Token("t", Instant.MAX);
+        }, URI.create("http://example.org"));
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Headers.Header>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(threads.submit(() -> authenticator.authorization(URI.create("http://example.org"))));
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Headers.Header> result : results)
+                assertEquals("Bearer t", result.get(5, TimeUnit.SECONDS).value());
+            assertEquals(1, fetches.get());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRefreshAheadOfExpiryInBackground() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        BearerTokenAuthenticator authenticator = new BearerTokenAuthenticator(authority -> new Token(
+                "t" + fetches.incrementAndGet(), Instant.now().plusSeconds(10)),
+                Duration.ofMinutes(1), Runnable::run, URI.create("http://example.org"));
+        URI uri = URI.create("http://example.org");
+
+        assertEquals("Bearer t1", authenticator.authorization(uri).value());
+        assertEquals("Bearer t1", authenticator.authorization(uri).value()); // triggers the refresh
+        assertEquals("Bearer t2", authenticator.authorization(uri).value());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
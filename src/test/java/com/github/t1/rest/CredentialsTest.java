@@ -174,6 +174,20 @@ public class CredentialsTest {
         assertEquals(CREDENTIALS, found);
     }
 
+    @Test
+    public void shouldFindMostSpecificCredentials() {
+        Credentials other = new Credentials("other", "pass");
+        givenCredentials(URI.create("http://example.org"));
+        givenCredentials(URI.create("http://other.org/app"));
+        config = config.register(baseUri.resolve("path"), other);
+
+        assertEquals(other, config.getCredentials(baseUri.resolve("path/sub?q=1")));
+        assertEquals(CREDENTIALS, config.getCredentials(baseUri.resolve("path2")));
+        assertEquals(CREDENTIALS, config.getCredentials(URI.create("HTTP://Example.org/")));
+        assertEquals(null, config.getCredentials(URI.create("http://other.org/app2")));
+        assertEquals(null, config.getCredentials(URI.create("https://example.org/app")));
+    }
+
     @Test
     public void shouldAddBasicAuthHeader() {
         givenCredentials();
@@ -184,4 +198,22 @@ public class CredentialsTest {
         String auth = request.requestHeaders().firstValue("Authorization");
         assertEquals("Basic " + BASE64_CREDENTIALS, auth);
     }
+
+    @Test
+    public void shouldAddPreEncodedBasicAuthHeader() {
+        givenCredentials();
+
+        EntityRestCall<?> request = config.createRestCall(GET.class, baseUri, new Headers(),
+                String.class, String.class);
+
+        assertSame(CREDENTIALS.basicAuthHeader(), request.requestHeaders().firstHeader("Authorization"));
+    }
+
+    @Test
+    public void shouldEncodeBasicAuthAsUtf8() {
+        Credentials credentials = new Credentials("j\u00fcrgen", "\u20ac");
+
+        assertEquals("Basic asO8cmdlbjrigqw=", credentials.basicAuthHeader().value());
+        assertTrue(new Headers().basicAuth(credentials).isBasicAuth(new Credentials("j\u00fcrgen", "\u20ac")));
+    }
 }
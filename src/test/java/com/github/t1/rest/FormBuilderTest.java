@@ -2,9 +2,35 @@ package com.github.t1.rest;
 
 import org.junit.Test;
 
+import javax.ws.rs.core.MultivaluedMap;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+
 public class FormBuilderTest {
     @Test
     public void shouldBuildEmptyForm() {
-        FormBuilder.form().build();
+        MultivaluedMap<String, String> form = FormBuilder.form().build();
+
+        assertTrue(form.isEmpty());
+    }
+
+    @Test
+    public void shouldBuildFormWithRepeatedFields() {
+        MultivaluedMap<String, String> form = FormBuilder.form().field("a", 1).field("b", "x").field("a", 2).build();
+
+        assertEquals(asList("1", "2"), form.get("a"));
+        assertEquals(singletonList("x"), form.get("b"));
+    }
+
+    @Test
+    public void shouldNotChangeBuiltForm() {
+        FormBuilder builder = FormBuilder.form().field("a", 1);
+        MultivaluedMap<String, String> form = builder.build();
+
+        builder.field("a", 2);
+
+        assertEquals(singletonList("1"), form.get("a"));
     }
 }
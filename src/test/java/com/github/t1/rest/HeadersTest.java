@@ -193,6 +193,15 @@ public class HeadersTest {
         assertEquals("text/html;charset=utf-8", headers.firstValue("Content-Type"));
     }
 
+    @Test
+    public void shouldReuseParsedContentType() {
+        Headers headers1 = new Headers().header("Content-Type", "application/json;charset=utf-8");
+        Headers headers2 = new Headers().header("Content-Type", "application/json;charset=utf-8");
+
+        assertEquals(new MediaType("application", "json", "utf-8"), headers1.contentType());
+        assertSame(headers1.contentType(), headers2.contentType());
+    }
+
     @Test
     public void shouldGetWildCardContentTypeHeader() {
         Headers headers = new Headers();
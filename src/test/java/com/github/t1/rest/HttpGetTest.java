@@ -13,11 +13,14 @@ import javax.ws.rs.core.*;
 import javax.ws.rs.core.Response.StatusType;
 import javax.xml.bind.annotation.XmlRootElement;
 import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Stream;
 
 import static com.github.t1.rest.fallback.InputStreamMessageBodyReader.*;
 import static com.github.t1.rest.fallback.YamlMessageBodyReader.*;
 import static java.util.Arrays.*;
 import static java.util.Collections.*;
+import static java.util.stream.Collectors.*;
 import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
 import static javax.ws.rs.core.Response.Status.Family.*;
@@ -106,12 +109,31 @@ public class HttpGetTest extends AbstractHttpMethodTest {
             return new Pojo("s", 123);
         }
 
+        @GET
+        @Path("/latin1-pojo")
+        @Produces(APPLICATION_XML + ";charset=ISO-8859-1")
+        public Pojo latin1Pojo() {
+            return new Pojo("äöü", 1);
+        }
+
         @GET
         @Path("/jsonpojo")
         public JsonPojo jsonpojo() {
             return new JsonPojo("json");
         }
 
+        @GET
+        @Path("/jsonpojos")
+        public List<JsonPojo> jsonpojos() {
+            return asList(new JsonPojo("one"), new JsonPojo("two"), new JsonPojo("three"));
+        }
+
+        @GET
+        @Path("/jsonpojos-with-null")
+        public List<JsonPojo> jsonpojosWithNull() {
+            return asList(new JsonPojo("one"), null, new JsonPojo("three"));
+        }
+
         @GET
         @Path("/foopojo")
         public FooVendorTypePojo foopojo() {
@@ -244,6 +266,38 @@ public class HttpGetTest extends AbstractHttpMethodTest {
         assertEquals("pong", response.getBody());
     }
 
+    @Test
+    public void shouldGetPingAsync() throws Exception {
+        EntityResponse<String> response = base("ping").accept(String.class).GET_Async().get();
+
+        assertEquals("pong", response.getBody());
+    }
+
+    @Test
+    public void shouldKnowWhenResponseArrived() throws Exception {
+        long start = System.nanoTime();
+        EntityResponse<String> sync = base("ping").accept(String.class).GET_Response();
+        EntityResponse<String> async = base("ping").accept(String.class).GET_Async().get();
+
+        assertTrue(sync.firstByteNanos() - start > 0);
+        assertTrue(async.firstByteNanos() - sync.firstByteNanos() > 0);
+    }
+
+    @Test
+    public void shouldConvertAsyncResponseWithAsyncExecutor() throws Exception {
+        List<String> threads = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RestContext rest = this.rest.asyncExecutor(command -> new Thread(() -> {
+            threads.add(Thread.currentThread().getName());
+            command.run();
+        }, "async-executor").start());
+
+        EntityResponse<String> response = rest.resource("test", "ping").accept(String.class).GET_Async()
+                .get(5, java.util.concurrent.TimeUnit.SECONDS);
+
+        assertEquals("pong", response.getBody());
+        assertEquals("create call and convert", asList("async-executor", "async-executor"), threads);
+    }
+
     @Test
     public void shouldGetPingAsStream() throws Exception {
         try (InputStream pong = baseAccept("ping", InputStream.class, WILDCARD_TYPE).GET()) {
@@ -273,6 +327,29 @@ public class HttpGetTest extends AbstractHttpMethodTest {
         assertEquals("json", pojo.getString());
     }
 
+    @Test
+    public void shouldStreamJsonPojos() {
+        try (Stream<JsonPojo> pojos = base("jsonpojos").GET_Stream(JsonPojo.class)) {
+            assertEquals(asList("one", "two", "three"), pojos.map(JsonPojo::getString).collect(toList()));
+        }
+    }
+
+    @Test
+    public void shouldStreamNullElements() {
+        try (Stream<JsonPojo> pojos = base("jsonpojos-with-null").GET_Stream(JsonPojo.class)) {
+            assertEquals(asList("one", null, "three"),
+                    pojos.map(pojo -> (pojo == null) ? null : pojo.getString()).collect(toList()));
+        }
+    }
+
+    @Test
+    public void shouldCloseStreamOfJsonPojosEarly() {
+        try (Stream<JsonPojo> pojos = base("jsonpojos").GET_Stream(JsonPojo.class)) {
+            assertEquals("one", pojos.findFirst().get().getString());
+        }
+        assertEquals("json", base("jsonpojo").GET(JsonPojo.class).getString());
+    }
+
     @Test
     public void shouldGetPojo() {
         Pojo pojo = base("pojo").accept(Pojo.class).GET();
@@ -319,6 +396,19 @@ public class HttpGetTest extends AbstractHttpMethodTest {
         assertEquals(123, pojo.getI());
     }
 
+    @Test
+    public void shouldGetPojoAsXmlTwice() {
+        assertEquals("s", baseAccept("pojo", Pojo.class, APPLICATION_XML_TYPE).GET().getString());
+        assertEquals("s", baseAccept("pojo", Pojo.class, APPLICATION_XML_TYPE).GET().getString());
+    }
+
+    @Test
+    public void shouldGetPojoAsXmlWithCharset() {
+        Pojo pojo = baseAccept("latin1-pojo", Pojo.class, APPLICATION_XML_TYPE).GET();
+
+        assertEquals("äöü", pojo.getString());
+    }
+
     @Test
     public void shouldGetPojoAsYaml() {
         RestRequest<Pojo> request = baseAccept("pojo", Pojo.class, APPLICATION_YAML_TYPE);
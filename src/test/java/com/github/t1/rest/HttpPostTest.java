@@ -9,7 +9,7 @@ import org.junit.runner.RunWith;
 
 import javax.inject.Inject;
 import javax.ws.rs.*;
-import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.*;
 import javax.xml.bind.annotation.XmlRootElement;
 
 import static lombok.AccessLevel.*;
@@ -33,6 +33,20 @@ public class HttpPostTest extends AbstractHttpMethodTest {
         public Pojo pojo() {
             return new Pojo("s", 123);
         }
+
+        @POST
+        @Path("/form")
+        @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
+        public Pojo form(@FormParam("string") String string, @FormParam("i") int i) {
+            return new Pojo(string, i);
+        }
+
+        @POST
+        @Path("/echo")
+        @Consumes(MediaType.APPLICATION_JSON)
+        public Pojo echo(Pojo pojo) {
+            return pojo;
+        }
     }
 
     @ClassRule
@@ -78,6 +92,42 @@ public class HttpPostTest extends AbstractHttpMethodTest {
         assertEquals(123, pojo.getI());
     }
 
+    @Test
+    public void shouldPostPojoAsync() throws Exception {
+        Pojo pojo = base("pojo").accept(Pojo.class).POST_Async().get().getBody();
+
+        assertEquals("s", pojo.getString());
+        assertEquals(123, pojo.getI());
+    }
+
+    @Test
+    public void shouldPostForm() {
+        MultivaluedMap<String, String> form = FormBuilder.form().field("string", "ä&ö").field("i", 7).build();
+
+        Pojo pojo = base("form").accept(Pojo.class).body(form).POST();
+
+        assertEquals("ä&ö", pojo.getString());
+        assertEquals(7, pojo.getI());
+    }
+
+    @Test
+    public void shouldPostJaxRs2Form() {
+        Form form = new Form().param("string", "x y").param("i", "3");
+
+        Pojo pojo = base("form").accept(Pojo.class).body(form).POST();
+
+        assertEquals("x y", pojo.getString());
+        assertEquals(3, pojo.getI());
+    }
+
+    @Test
+    public void shouldPostJsonBody() {
+        Pojo pojo = base("echo").accept(Pojo.class).body(new Pojo("e", 42)).POST();
+
+        assertEquals("e", pojo.getString());
+        assertEquals(42, pojo.getI());
+    }
+
     @Test
     public void shouldPostUntypedPojo() {
         Pojo pojo = base("pojo").POST_Response().getBody(Pojo.class);
@@ -11,6 +11,7 @@ import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
 import javax.xml.bind.annotation.XmlRootElement;
+import java.io.ByteArrayInputStream;
 
 import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
@@ -60,6 +61,35 @@ public class HttpPutTest extends AbstractHttpMethodTest {
         public Response putTextPlain(String body) {
             return Response.ok().header("pong", "*" + body + "*").build();
         }
+
+        @PUT
+        @Path("/json")
+        @Consumes(APPLICATION_JSON)
+        public Response putJson(JsonPojo body) {
+            return Response.ok().header("pong", "*" + body.getString() + "*").build();
+        }
+
+        @PUT
+        @Path("/xml")
+        @Consumes(APPLICATION_XML)
+        public Response putXml(Pojo body) {
+            return Response.ok().header("pong", "*" + body.getString() + body.getI() + "*").build();
+        }
+
+        @PUT
+        @Path("/text-length")
+        @Consumes(TEXT_PLAIN)
+        public Response putTextLength(String body, @HeaderParam("Content-Length") String contentLength,
+                @HeaderParam("Transfer-Encoding") String transferEncoding) {
+            return Response.ok().header("pong", "*" + contentLength + " " + transferEncoding + "*").build();
+        }
+
+        @PUT
+        @Path("/bytes")
+        @Consumes(APPLICATION_OCTET_STREAM)
+        public Response putBytes(byte[] body, @HeaderParam("Transfer-Encoding") String transferEncoding) {
+            return Response.ok().header("pong", "*" + body.length + " " + transferEncoding + "*").build();
+        }
     }
 
     @ClassRule
@@ -74,15 +104,55 @@ public class HttpPutTest extends AbstractHttpMethodTest {
     }
 
     @Test
-    @Ignore
     public void shouldPutAsDefaultJson() {
-        RestResponse response = base("text-plain").PUT(new Pojo("s", 123));
+        RestResponse response = base("json").PUT(new JsonPojo("hi"));
+
+        assertEquals("*hi*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutAsDefaultTextPlain() {
+        RestResponse response = base("text-plain").PUT("hi");
+
+        assertEquals("*hi*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutAsExplicitXml() {
+        RestResponse response = base("xml").PUT(APPLICATION_XML_TYPE, new Pojo("s", 123));
+
+        assertEquals("*s123*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutBytesWithContentLength() {
+        RestResponse response = base("bytes").PUT(new byte[1000]);
+
+        assertEquals("*1000 null*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutStringWithContentLength() {
+        RestResponse response = base("text-length").PUT(TEXT_PLAIN_TYPE, "h\u00e4llo");
+
+        assertEquals("*6 null*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutStreamChunked() {
+        RestResponse response = base("bytes").PUT(new ByteArrayInputStream(new byte[100_000]));
+
+        assertEquals("*100000 chunked*", response.expecting(OK).header("pong").value());
+    }
+
+    @Test
+    public void shouldPutAsync() throws Exception {
+        EntityResponse<String> response = base("text-plain").accept(String.class).body("hi").PUT_Async().get();
 
         assertEquals("*hi*", response.expecting(OK).header("pong").value());
     }
 
     @Test
-    @Ignore
     public void shouldPutAsExplicitTextPlain() {
         RestResponse response = base("text-plain").PUT(TEXT_PLAIN_TYPE, "hi");
 
@@ -3,10 +3,17 @@ package com.github.t1.rest;
 import lombok.*;
 import org.junit.Test;
 
-import java.net.URI;
+import com.github.t1.rest.RestClientMocker.LatencyDistribution;
+
+import java.net.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static javax.ws.rs.core.MediaType.*;
 import static javax.ws.rs.core.Response.Status.*;
+import static java.util.concurrent.TimeUnit.*;
 import static org.junit.Assert.*;
 
 public class RestClientMockerTest {
@@ -33,6 +40,24 @@ public class RestClientMockerTest {
         assertEquals("value", value);
     }
 
+    @Test
+    public void shouldGetNonAsciiStringAsUtf8() {
+        mock.on(BASE + "/string").GET().respond("gr\u00fc\u00dfe \u20ac");
+
+        String value = rest.createResource(BASE + "/string").GET();
+
+        assertEquals("gr\u00fc\u00dfe \u20ac", value);
+    }
+
+    @Test
+    public void shouldGetStringAsync() throws Exception {
+        mock.on(BASE + "/string").GET().respond("value");
+
+        EntityResponse<String> response = rest.createResource(BASE + "/string").accept(String.class).GET_Async().get();
+
+        assertEquals("value", response.getBody());
+    }
+
     @Test
     public void shouldGetInt() {
         mock.on(BASE + "/int").GET().respond(123);
@@ -128,4 +153,216 @@ public class RestClientMockerTest {
 
         assertEquals(POJO, response);
     }
+
+    @Test
+    public void shouldPostAndPut() {
+        mock.on(BASE + "/pojo").POST().respond("posted");
+        mock.on(BASE + "/pojo").PUT().respond("put");
+
+        assertEquals("posted", rest.createResource(BASE + "/pojo").accept(String.class).body("x").POST());
+        assertEquals("put", rest.createResource(BASE + "/pojo").accept(String.class).body("x").PUT_Response()
+                .getBody());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailUnmockedMethod() {
+        mock.on(BASE + "/pojo").POST().respond("posted");
+
+        rest.createResource(BASE + "/pojo").GET();
+    }
+
+    @Test
+    public void shouldMatchUriTemplate() {
+        mock.on(BASE + "/orders/{id}").GET().respond("order");
+        mock.on(BASE + "/orders/{id}/items/{*rest}").GET().respond("item");
+        mock.on(BASE + "/orders/special").GET().respond("special");
+
+        assertEquals("order", rest.createResource(BASE + "/orders/123").GET());
+        assertEquals("item", rest.createResource(BASE + "/orders/123/items/4/details").GET());
+        assertEquals("special", rest.createResource(BASE + "/orders/special").GET());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotMatchUriTemplateVariableAcrossSlashes() {
+        mock.on(BASE + "/orders/{id}").GET().respond("order");
+
+        rest.createResource(BASE + "/orders/123/items").GET();
+    }
+
+    @Data
+    public static class CountingPojo {
+        static final AtomicInteger SERIALIZATIONS = new AtomicInteger();
+
+        String key = "k";
+
+        public String getKey() {
+            SERIALIZATIONS.incrementAndGet();
+            return key;
+        }
+    }
+
+    @Test
+    public void shouldSerializeStaticResponseOnceWhenCalledInParallel() throws Exception {
+        CountingPojo.SERIALIZATIONS.set(0);
+        mock.on(BASE + "/pojo").GET().respond(new CountingPojo());
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Pojo>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                results.add(threads.submit(() -> rest.createResource(BASE + "/pojo").GET(Pojo.class)));
+
+            for (Future<Pojo> result : results)
+                assertEquals("k", result.get(5, SECONDS).getKey());
+            assertEquals(1, CountingPojo.SERIALIZATIONS.get());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldProduceBodyForEveryCall() {
+        AtomicInteger calls = new AtomicInteger();
+        mock.on(BASE + "/int").GET().produceBody(calls::incrementAndGet);
+
+        assertEquals(1, (int) rest.createResource(BASE + "/int").GET(int.class));
+        assertEquals(2, (int) rest.createResource(BASE + "/int").GET(int.class));
+    }
+
+    @Test
+    public void shouldDelayWithFixedLatency() {
+        mock.on(BASE + "/string").GET().latency(LatencyDistribution.fixed(Duration.ofMillis(100))).respond("value");
+
+        long start = System.nanoTime();
+        assertEquals("value", rest.createResource(BASE + "/string").GET());
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+    }
+
+    @Test
+    public void shouldDelayAsyncWithoutBlocking() throws Exception {
+        mock.on(BASE + "/string").GET().latency(LatencyDistribution.fixed(Duration.ofMillis(200))).respond("value");
+
+        CompletableFuture<EntityResponse<String>> future =
+                rest.createResource(BASE + "/string").accept(String.class).GET_Async();
+
+        assertFalse(future.isDone());
+        assertEquals("value", future.get(5, SECONDS).getBody());
+    }
+
+    @Test
+    public void shouldSampleUniformLatency() {
+        LatencyDistribution uniform = LatencyDistribution.uniform(Duration.ofMillis(10), Duration.ofMillis(20));
+        Random random = new Random(1);
+
+        for (int i = 0; i < 1000; i++) {
+            long sample = uniform.sample(random);
+            assertTrue(sample >= 10_000 && sample <= 20_000);
+        }
+    }
+
+    @Test
+    public void shouldSampleLogNormalLatencyAroundTheMedian() {
+        LatencyDistribution logNormal = LatencyDistribution.logNormal(Duration.ofMillis(10), 0.5);
+        Random random = new Random(1);
+
+        long[] samples = new long[1001];
+        for (int i = 0; i < samples.length; i++)
+            samples[i] = logNormal.sample(random);
+        Arrays.sort(samples);
+
+        assertTrue(samples[500] > 9_000 && samples[500] < 11_000);
+        assertTrue(samples[990] > 2 * samples[500]);
+    }
+
+    @Test
+    public void shouldSampleLatencyFromHistogram() {
+        Map<Duration, Integer> counts = new HashMap<>();
+        counts.put(Duration.ofMillis(10), 3);
+        counts.put(Duration.ofMillis(20), 0);
+        counts.put(Duration.ofMillis(30), 1);
+        LatencyDistribution histogram = LatencyDistribution.histogram(counts);
+        Random random = new Random(1);
+
+        int fast = 0;
+        for (int i = 0; i < 1000; i++) {
+            long sample = histogram.sample(random);
+            assertTrue("empty bucket", sample < 10_000 || sample >= 20_000);
+            assertTrue(sample <= 30_000);
+            if (sample < 10_000)
+                fast++;
+        }
+        assertTrue(fast > 700 && fast < 800);
+    }
+
+    @Test(expected = HttpTimeoutException.class)
+    public void shouldFailWithTimeout() {
+        mock.on(BASE + "/string").GET().failWithTimeout(1, Duration.ofMillis(10)).respond("value");
+
+        rest.createResource(BASE + "/string").GET();
+    }
+
+    @Test
+    public void shouldFailAsyncWithTimeout() throws Exception {
+        mock.on(BASE + "/string").GET().failWithTimeout(1, Duration.ofMillis(10)).respond("value");
+
+        try {
+            rest.createResource(BASE + "/string").accept(String.class).GET_Async().get(5, SECONDS);
+            fail("expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof HttpTimeoutException);
+        }
+    }
+
+    @Test
+    public void shouldFailWithStatus() {
+        mock.on(BASE + "/string").GET().failWithStatus(1, SERVICE_UNAVAILABLE).respond("value");
+
+        EntityResponse<String> response = rest.createResource(BASE + "/string").GET_Response(String.class);
+
+        assertEquals(SERVICE_UNAVAILABLE, response.status());
+    }
+
+    @Test
+    public void shouldFailWithConnectionReset() {
+        mock.on(BASE + "/string").GET().failWithConnectionReset(1).respond("value");
+
+        try {
+            rest.createResource(BASE + "/string").GET();
+            fail("expected connection reset");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof SocketException);
+        }
+    }
+
+    @Test
+    public void shouldInjectFaultsReproduciblyAtTheirRate() {
+        List<Integer> first = failures(42);
+
+        assertTrue(first.size() > 250 && first.size() < 350);
+        assertEquals(first, failures(42));
+    }
+
+    private List<Integer> failures(long seed) {
+        mock.on(BASE + "/string").GET().seed(seed).failWithStatus(0.3, INTERNAL_SERVER_ERROR).respond("value");
+        List<Integer> failures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+            if (rest.createResource(BASE + "/string").GET_Response(String.class).status() != OK)
+                failures.add(i);
+        return failures;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectFaultRatesAboveOne() {
+        mock.on(BASE + "/string").GET().failWithStatus(0.6, INTERNAL_SERVER_ERROR).failWithConnectionReset(0.6);
+    }
+
+    @Test
+    public void shouldThrottleBandwidth() {
+        char[] body = new char[10_000];
+        Arrays.fill(body, 'x');
+        mock.on(BASE + "/string").GET().bandwidth(100_000).respond(new String(body));
+
+        long start = System.nanoTime();
+        assertEquals(10_000, rest.createResource(BASE + "/string").GET().length());
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+    }
 }
@@ -1,14 +1,20 @@
 package com.github.t1.rest;
 
 import static com.github.t1.rest.RestContext.*;
+import static javax.ws.rs.core.Response.Status.*;
+import static java.util.concurrent.TimeUnit.*;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import org.junit.*;
 
+import com.github.t1.rest.RestClientRecorder.*;
+
 import lombok.SneakyThrows;
 
 public class RestClientRecorderTest {
@@ -20,6 +26,7 @@ public class RestClientRecorderTest {
 
     @Before
     public void before() {
+        Recordings.clear(BASE.getAuthority());
         deleteRecordings();
         mock = new RestClientMocker(REST.register("base", BASE));
     }
@@ -32,6 +39,7 @@ public class RestClientRecorderTest {
     @SneakyThrows(IOException.class)
     private void deleteRecordings() {
         Files.deleteIfExists(TMP.resolve("example.mock"));
+        Files.deleteIfExists(TMP.resolve("example.mock.rec"));
         Files.createDirectories(TMP);
     }
 
@@ -84,6 +92,171 @@ public class RestClientRecorderTest {
         assertEquals("value-1", body1);
     }
 
+    @Test
+    public void shouldRecordAndPlaybackInParallel() throws Exception {
+        RestContext recorder = recorder(TMP);
+        for (int i = 0; i < 100; i++)
+            mock.on(BASE + "/string-" + i).GET().respond("value-" + i);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> bodies = new ArrayList<>();
+            for (int round = 0; round < 2; round++) // record, then playback
+                for (int i = 0; i < 100; i++) {
+                    String path = "/string-" + i;
+                    bodies.add(threads.submit(() -> recorder.resource("base", path).GET()));
+                }
+
+            for (int i = 0; i < bodies.size(); i++)
+                assertEquals("value-" + (i % 100), bodies.get(i).get(5, SECONDS));
+            assertEquals(100, Recordings.get(TMP, BASE.getAuthority()).recordings().size());
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldAppendRecordingsToJournalAndLoadThem() {
+        RestContext recorder = recorder(TMP);
+        mock.on(BASE + "/string-0").GET().respond("value-0");
+        mock.on(BASE + "/string-1").GET().respond("value-1");
+        recorder.resource("base", "/string-0").GET();
+        recorder.resource("base", "/string-1").GET();
+
+        Recordings.unload(BASE.getAuthority());
+        mock.on(BASE + "/string-0").GET().respond("value-2");
+
+        assertEquals(2, journalEntries());
+        assertEquals("value-0", recorder(TMP).resource("base", "/string-0").GET());
+        assertEquals(2, Recordings.get(TMP, BASE.getAuthority()).recordings().size());
+    }
+
+    @Test
+    public void shouldCompactJournal() {
+        Recordings recordings = Recordings.get(TMP, BASE.getAuthority());
+        for (int i = 0; i < 100; i++)
+            recordings.record(new Recording().uri(BASE).requestHeaders(new Headers())
+                    .responseStatus(OK).responseHeaders(new Headers()).responseBody("value-" + i));
+        recordings.flush();
+
+        assertEquals(1, recordings.recordings().size());
+        assertTrue("compacted", journalEntries() <= 64);
+        Recordings.unload(BASE.getAuthority());
+        assertEquals("value-99", Recordings.get(TMP, BASE.getAuthority()).recordings().get(0).responseBody());
+    }
+
+    @Test
+    public void shouldRecordAndPlaybackFromBinaryFile() {
+        RestContext recorder = new RestClientRecorder(mock.context(), TMP, Format.binary).context();
+        mock.on(BASE + "/string-0").GET().respond("value-0");
+        mock.on(BASE + "/string-1").GET().respond("value-1");
+        recorder.resource("base", "/string-0").GET();
+        recorder.resource("base", "/string-1").basicAuth(CREDENTIALS).GET(String.class);
+
+        Recordings.unload(BASE.getAuthority());
+        mock.on(BASE + "/string-0").GET().respond("value-2");
+
+        assertTrue(Files.exists(TMP.resolve("example.mock.rec")));
+        assertFalse(Files.exists(TMP.resolve("example.mock")));
+        RestContext playback = new RestClientRecorder(mock.context(), TMP, Format.binary).context();
+        assertEquals("value-0", playback.resource("base", "/string-0").GET());
+        Recording recording = Recordings.get(TMP, BASE.getAuthority(), Format.binary).recordings().get(1);
+        assertEquals(OK, recording.responseStatus());
+        assertEquals("value-1", recording.responseBody());
+        assertTrue(recording.requestHeaders().isBasicAuth(CREDENTIALS));
+        assertEquals(7, recording.timing().bodySize());
+    }
+
+    @Test
+    public void shouldRecordTiming() {
+        RestContext recorder = recorder(null);
+        mock.on(BASE + "/string").GET().respond("value-0");
+
+        recorder.resource("base", "/string").GET();
+
+        Timing timing = Recordings.get(null, BASE.getAuthority()).recordings().get(0).timing();
+        assertEquals(7, timing.bodySize());
+        assertTrue(timing.timeToFirstByte() >= 0);
+        assertTrue(timing.duration() >= timing.timeToFirstByte());
+    }
+
+    private RestClientRecorder recordSlowString(Latency latency) {
+        RestClientRecorder recorder = new RestClientRecorder(mock.context(), null).latency(latency);
+        mock.on(BASE + "/string").GET().respond("value-0");
+        recorder.context().resource("base", "/string").GET();
+        Recordings.get(null, BASE.getAuthority()).recordings().get(0).timing(new Timing(100_000, 200_000, 7));
+        return recorder;
+    }
+
+    @Test
+    public void shouldPlaybackWithExactLatency() {
+        RestClientRecorder recorder = recordSlowString(Latency.exact());
+
+        long start = System.nanoTime();
+        assertEquals("value-0", recorder.context().resource("base", "/string").GET());
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+    }
+
+    @Test
+    public void shouldPlaybackAsyncWithScaledLatencyWithoutBlocking() throws Exception {
+        RestClientRecorder recorder = recordSlowString(Latency.scaled(2));
+
+        long start = System.nanoTime();
+        CompletableFuture<EntityResponse<String>> future =
+                recorder.context().resource("base", "/string").accept(String.class).GET_Async();
+        assertFalse(future.isDone());
+        assertEquals("value-0", future.get(5, SECONDS).getBody());
+        assertTrue(NANOSECONDS.toMillis(System.nanoTime() - start) >= 400);
+    }
+
+    @Test
+    public void shouldSampleLatencyFromTheTimingsOfTheSameUri() {
+        Recordings recordings = Recordings.get(null, BASE.getAuthority());
+        Recording one = new Recording().uri(BASE).requestHeaders(new Headers().header("Foo", "1"))
+                .timing(new Timing(0, 1_000, 0));
+        Recording two = new Recording().uri(BASE).requestHeaders(new Headers().header("Foo", "2"))
+                .timing(new Timing(0, 2_000, 0));
+        recordings.addOrReplace(one).addOrReplace(two)
+                .addOrReplace(new Recording().uri(BASE.resolve("/other")).timing(new Timing(0, 3_000, 0)));
+
+        Set<Long> delays = new HashSet<>();
+        for (int i = 0; i < 100; i++)
+            delays.add(Latency.sampled().delay(one, recordings));
+
+        assertEquals(new HashSet<>(Arrays.asList(1_000L, 2_000L)), delays);
+    }
+
+    @Test
+    public void shouldCompactBinaryFile() {
+        Recordings recordings = Recordings.get(TMP, BASE.getAuthority(), Format.binary);
+        for (int i = 0; i < 100; i++)
+            recordings.record(new Recording().uri(BASE).requestHeaders(new Headers())
+                    .responseStatus(OK).responseHeaders(new Headers()).responseBody("value-" + i));
+        recordings.flush();
+        recordings.write();
+
+        Recordings.unload(BASE.getAuthority());
+        Recordings loaded = Recordings.get(TMP, BASE.getAuthority(), Format.binary);
+        assertEquals(1, loaded.recordings().size());
+        assertEquals("value-99", loaded.find(BASE, new Headers()).responseBody());
+    }
+
+    @Test
+    public void shouldKeepRecordingsOfDifferentFoldersAndFormatsApart() {
+        Recordings yaml = Recordings.get(TMP, BASE.getAuthority(), Format.yaml);
+        Recordings binary = Recordings.get(TMP, BASE.getAuthority(), Format.binary);
+        Recordings memory = Recordings.get(null, BASE.getAuthority());
+
+        assertEquals(TMP.resolve("example.mock").toAbsolutePath(), yaml.file());
+        assertEquals(TMP.resolve("example.mock.rec").toAbsolutePath(), binary.file());
+        assertNull(memory.file());
+        assertSame(yaml, Recordings.get(TMP.resolve("../recordings"), BASE.getAuthority()));
+    }
+
+    @SneakyThrows(IOException.class)
+    private long journalEntries() {
+        return Files.lines(TMP.resolve("example.mock")).filter(line -> line.contains("uri:")).count();
+    }
+
     @Test
     @Ignore("the mock can't handle this, yet")
     public void shouldRecordTwoDifferentRequestHeaders() {
@@ -0,0 +1,98 @@
+package com.github.t1.rest;
+
+import com.github.t1.rest.fallback.StringMessageBodyReader;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.*;
+
+import static com.github.t1.rest.RestContext.*;
+import static org.junit.Assert.*;
+
+public class RestContextTest {
+    @Test
+    public void shouldCacheConverter() {
+        ResponseConverter<String> first = REST.converterFor(String.class);
+        ResponseConverter<String> second = REST.converterFor(String.class);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    public void shouldShareConverterCacheWithRegisteringContext() {
+        RestContext registering = REST.register("alias", URI.create("http://example.org"));
+
+        assertSame(REST.converterFor(String.class), registering.converterFor(String.class));
+    }
+
+    @Test
+    public void shouldNotShareConverterCacheWithContextWithMoreReaders() {
+        RestContext more = REST.and(new StringMessageBodyReader());
+
+        assertNotSame(REST.converterFor(String.class), more.converterFor(String.class));
+    }
+
+    @Test
+    public void shouldNotModifyCachedConverterWhenCombiningTypes() {
+        int stringMediaTypes = REST.converterFor(String.class).mediaTypes().size();
+
+        ResponseConverter<?> combined = REST.converterFor(String.class, byte[].class);
+
+        assertTrue(combined.mediaTypes().size() > stringMediaTypes);
+        assertEquals(stringMediaTypes, REST.converterFor(String.class).mediaTypes().size());
+    }
+
+    @Test
+    public void shouldStreamInputStreamConverter() {
+        assertTrue(REST.converterFor(InputStream.class).streaming());
+        assertFalse(REST.converterFor(String.class).streaming());
+    }
+
+    @Test
+    public void shouldResolveLatestRegisteredAlias() {
+        RestContext rest = REST;
+        for (int i = 0; i < 100; i++)
+            rest = rest.register("alias-" + i % 10, "http://example.org/" + i);
+
+        RestContext more = rest.register("alias-3", "http://example.org/more");
+
+        assertEquals("http://example.org/93", rest.uri("alias-3").toString());
+        assertEquals("http://example.org/more", more.uri("alias-3").toString());
+        assertEquals(10, more.toString().split(",").length);
+    }
+
+    @Test
+    public void shouldRegisterAllAliases() {
+        Map<String, UriTemplate> uris = new LinkedHashMap<>();
+        uris.put("one", UriTemplate.fromString("http://example.org/1"));
+        uris.put("two", UriTemplate.fromString("http://example.org/2"));
+
+        RestContext rest = REST.register("one", "http://example.org/0").registerAll(uris);
+
+        assertEquals("http://example.org/1", rest.uri("one").toString());
+        assertEquals("http://example.org/2", rest.uri("two").toString());
+    }
+
+    @Test
+    public void shouldKeepAccessorsOfSingleResourceRegistry() {
+        RestResource resource = new RestResource(UriTemplate.fromString("http://example.org/1"));
+        StaticRestResourceRegistry first = new StaticRestResourceRegistry("one", resource);
+        StaticRestResourceRegistry second = first.and("two", "http://example.org/2");
+
+        assertEquals("two", second.alias());
+        assertEquals("http://example.org/2", second.resource().uri().toString());
+        assertSame(first, second.tail());
+        assertEquals("StaticRestResourceRegistry(alias=two, resource=" + second.resource() + ", tail="
+                + "StaticRestResourceRegistry(alias=one, resource=" + resource + ", tail=null))", second.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailToGetSingleAliasOfBulkRegistry() {
+        Map<String, RestResource> resources = new LinkedHashMap<>();
+        resources.put("one", new RestResource(UriTemplate.fromString("http://example.org/1")));
+        resources.put("two", new RestResource(UriTemplate.fromString("http://example.org/2")));
+
+        new StaticRestResourceRegistry(resources, null).alias();
+    }
+}
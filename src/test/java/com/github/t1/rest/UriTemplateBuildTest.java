@@ -332,4 +332,17 @@ public class UriTemplateBuildTest {
     public void shouldNotCompileWithTwoFragments() {
         // http.absolutePath("path").fragment("frag1").fragment("frag2");
     }
+
+    @Test
+    public void shouldEqualBuiltAndParsedTemplate() {
+        UriTemplate built = https.host("example.org").absolutePath("path").query("q", "v").fragment("f");
+        UriTemplate parsed = UriTemplate.fromString("https://example.org/path?q=v#f");
+
+        assertEquals(parsed, built);
+        assertEquals(parsed.hashCode(), built.hashCode());
+        assertSame(built.toString(), built.toString());
+        assertSame(built.toUri(), built.toUri());
+        assertEquals("example.org", built.host());
+        assertEquals("//example.org/path?q=v", built.schemeSpecificPart());
+    }
 }
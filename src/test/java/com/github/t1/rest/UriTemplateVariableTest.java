@@ -4,7 +4,12 @@ import com.github.t1.rest.UriTemplate.Fragment;
 import org.assertj.core.api.Assertions;
 import org.junit.*;
 
+import java.net.URI;
+import java.util.*;
+
 import static com.github.t1.rest.UriTemplateAssert.assertThat;
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.Assert.*;
 
@@ -18,6 +23,16 @@ public class UriTemplateVariableTest {
                 .hasVariables("s", "u", "h", "po", "pa", "mk", "mv", "qk", "qv", "f");
     }
 
+    @Test
+    public void shouldKnowIfVariablesAreLeft() {
+        UriTemplate template = UriTemplate.fromString("http://example.org/{p}?q={q}");
+
+        assertTrue(template.hasVariables());
+        assertTrue(template.with("p", 1).hasVariables());
+        assertFalse(template.with("p", 1).with("q", 2).hasVariables());
+        assertTrue(template.with("q", "{x}").variables().contains("x"));
+    }
+
     @Test
     public void shouldReplaceSchemeVariable() {
         UriTemplate template = UriTemplate.fromString("{s}://example.org/path?q=1");
@@ -233,4 +248,45 @@ public class UriTemplateVariableTest {
 
         assertEquals("http://example.org/path?q=1#3.5", uri.toString());
     }
+
+    @Test
+    public void shouldExpandCompiledTemplateByPosition() {
+        CompiledUriTemplate template = UriTemplate.fromString("http://{h}/orders/{id}/items/{item}?q={id}").compile();
+
+        URI uri = template.expand("example.org", 123, 4);
+
+        assertEquals(asList("h", "id", "item"), template.variables());
+        assertEquals(URI.create("http://example.org/orders/123/items/4?q=123"), uri);
+    }
+
+    @Test
+    public void shouldExpandCompiledTemplateByName() {
+        CompiledUriTemplate template = UriTemplate.fromString("file:a/{*p}/e;m={m}?q=1#{f}").compile();
+        Map<String, Object> values = new HashMap<>();
+        values.put("p", "b/c/d");
+        values.put("m", 1.2);
+        values.put("f", "x");
+
+        URI uri = template.expand(values);
+
+        assertEquals(URI.create("file:a/b/c/d/e;m=1.2?q=1#x"), uri);
+    }
+
+    @Test
+    public void shouldFailToExpandCompiledPathVariableWithSlashes() {
+        CompiledUriTemplate template = UriTemplate.fromString("http://example.org/{p}/d?q=1").compile();
+
+        Throwable thrown = catchThrowable(() -> template.expand("a/b/c"));
+
+        Assertions.assertThat(thrown).hasMessage("path elements must not contain slashes: a/b/c");
+    }
+
+    @Test
+    public void shouldFailToExpandCompiledTemplateWithMissingValue() {
+        CompiledUriTemplate template = UriTemplate.fromString("http://example.org/{p}?q={q}").compile();
+
+        Throwable thrown = catchThrowable(() -> template.expand(singletonMap("p", "x")));
+
+        Assertions.assertThat(thrown).hasMessage("no value for variable 'q' in http://example.org/{p}?q={q}");
+    }
 }